@@ -0,0 +1,270 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Circuit breaker of one endpoint, so connects to a known-bad endpoint fail fast instead of waiting on the connect
+ * timeout.
+ *
+ * <p>While {@linkplain State#CLOSED closed}, connects proceed normally.  After the configured number of
+ * consecutive failures, the circuit {@linkplain State#OPEN opens} and connects fail immediately.  Once the open
+ * delay has passed, the circuit is {@linkplain State#HALF_OPEN half-open}: a single connect is let through as a
+ * probe while others continue to fail.  The probe closes the circuit on success or reopens it on failure.</p>
+ *
+ * <p>The outcome of a connect is ignored when the state has changed since it was allowed, so connects started
+ * before the circuit opened can neither close it again nor reopen it while half-open.</p>
+ *
+ * <p>Instances are thread-safe.</p>
+ *
+ * @see  HttpSocketClient.Builder#circuitBreaker(int, long)
+ * @see  HttpSocketClient#getCircuitBreaker(java.net.URL)
+ */
+public final class CircuitBreaker {
+
+  /**
+   * The states of a circuit breaker.
+   */
+  public enum State {
+    /**
+     * Connects proceed normally.
+     */
+    CLOSED,
+
+    /**
+     * Connects fail immediately.
+     */
+    OPEN,
+
+    /**
+     * A single probe connect is allowed.
+     */
+    HALF_OPEN
+  }
+
+  /**
+   * Returned by {@link #allow()} when the connect is to fail fast.
+   */
+  static final long REJECTED = -1;
+
+  /**
+   * Returned by {@link #allow()} when this breaker has been evicted, and the connect must use the current breaker of
+   * the endpoint instead.
+   */
+  static final long EVICTED = -2;
+
+  private final String endpoint;
+  private final int failureThreshold;
+  private final long openDelayNanos;
+
+  private State state = State.CLOSED;
+
+  /**
+   * Incremented on every change of {@link #state}, so the outcome of a connect allowed before the change is
+   * ignored.
+   */
+  private long generation;
+
+  private int consecutiveFailures;
+  private long openedNanos;
+  private boolean probeInFlight;
+
+  /**
+   * The number of connects allowed and not yet ended.
+   */
+  private int inFlight;
+
+  private boolean evicted;
+  private long rejected;
+
+  CircuitBreaker(String endpoint, int failureThreshold, long openDelay) {
+    this.endpoint = endpoint;
+    this.failureThreshold = failureThreshold;
+    this.openDelayNanos = TimeUnit.MILLISECONDS.toNanos(openDelay);
+  }
+
+  @Override
+  public String toString() {
+    synchronized (this) {
+      return endpoint
+          + " (state=" + state
+          + ", consecutiveFailures=" + consecutiveFailures
+          + ", rejected=" + rejected
+          + ')';
+    }
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  /**
+   * Gets the number of consecutive failures since the last success.
+   */
+  public synchronized int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  /**
+   * Gets the number of connects failed fast by this breaker.
+   */
+  public synchronized long getRejected() {
+    return rejected;
+  }
+
+  /**
+   * Would a connect fail fast right now?
+   */
+  synchronized boolean isRejecting() {
+    switch (state) {
+      case CLOSED:
+        return false;
+      case OPEN:
+        return System.nanoTime() - openedNanos < openDelayNanos;
+      case HALF_OPEN:
+        return probeInFlight;
+      default:
+        throw new AssertionError(state);
+    }
+  }
+
+  /**
+   * Evicts this breaker when it is closed without any failures or connects in flight, thus indistinguishable from a
+   * new breaker other than its {@linkplain #getRejected() rejected count}.  Once evicted, {@link #allow()} returns
+   * {@link #EVICTED}.
+   *
+   * @return  {@code true} when evicted
+   */
+  synchronized boolean evictIfIdle() {
+    if (state == State.CLOSED && consecutiveFailures == 0 && inFlight == 0) {
+      evicted = true;
+    }
+    return evicted;
+  }
+
+  /**
+   * Asks to start a connect.  Every allowed connect must be followed by exactly one call to one of
+   * {@link #recordSuccess(long)}, {@link #recordFailure(long)}, or {@link #release(long)}, given the value returned
+   * here.
+   *
+   * @return  The generation of the breaker the connect is allowed in, {@link #REJECTED} to fail fast, or
+   *          {@link #EVICTED} when this breaker is no longer used
+   */
+  synchronized long allow() {
+    if (evicted) {
+      return EVICTED;
+    }
+    switch (state) {
+      case CLOSED:
+        break;
+      case OPEN:
+        if (System.nanoTime() - openedNanos < openDelayNanos) {
+          rejected++;
+          return REJECTED;
+        }
+        setState(State.HALF_OPEN);
+        probeInFlight = true;
+        break;
+      case HALF_OPEN:
+        if (probeInFlight) {
+          rejected++;
+          return REJECTED;
+        }
+        probeInFlight = true;
+        break;
+      default:
+        throw new AssertionError(state);
+    }
+    inFlight++;
+    return generation;
+  }
+
+  private void setState(State state) {
+    this.state = state;
+    generation++;
+  }
+
+  /**
+   * Ends an allowed connect.
+   *
+   * @return  {@code true} when the connect was allowed in the current generation, and its outcome is to be recorded
+   */
+  private boolean end(long allowed) {
+    assert inFlight > 0;
+    inFlight--;
+    if (allowed != generation) {
+      return false;
+    }
+    if (state == State.HALF_OPEN) {
+      // Only the probe is allowed while half-open
+      probeInFlight = false;
+    }
+    return true;
+  }
+
+  /**
+   * Records a successful connect.  Ignored when the state has changed since the connect was allowed.
+   *
+   * @param  allowed  The value returned by {@link #allow()}
+   */
+  synchronized void recordSuccess(long allowed) {
+    if (end(allowed)) {
+      consecutiveFailures = 0;
+      if (state != State.CLOSED) {
+        setState(State.CLOSED);
+      }
+    }
+  }
+
+  /**
+   * Ends an allowed connect that never reached the endpoint, such as one rejected by the connect limiter or by
+   * the client being closed.  Neither success nor failure is recorded, so a half-open circuit lets another probe
+   * through.
+   *
+   * @param  allowed  The value returned by {@link #allow()}
+   */
+  synchronized void release(long allowed) {
+    end(allowed);
+  }
+
+  /**
+   * Records a failed connect.  Ignored when the state has changed since the connect was allowed.
+   *
+   * @param  allowed  The value returned by {@link #allow()}
+   */
+  synchronized void recordFailure(long allowed) {
+    if (end(allowed)) {
+      consecutiveFailures++;
+      if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+        setState(State.OPEN);
+        openedNanos = System.nanoTime();
+      }
+    }
+  }
+}
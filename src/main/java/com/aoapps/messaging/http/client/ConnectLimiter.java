@@ -0,0 +1,186 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Limits the number of connect handshakes in flight, queueing a bounded number beyond the limit and rejecting the
+ * rest.
+ *
+ * <p>When adaptive, the limit follows additive-increase/multiplicative-decrease: it grows by one per limit's worth
+ * of successful handshakes, and shrinks by {@link #BACKOFF_RATIO} on failure or when the handshake latency rises
+ * beyond {@link #LATENCY_TOLERANCE} times the no-load baseline, a sign of queueing on the client or server.</p>
+ */
+final class ConnectLimiter {
+
+  /**
+   * The ratio the adaptive limit is multiplied by on congestion.
+   */
+  private static final double BACKOFF_RATIO = 0.9;
+
+  /**
+   * The ratio of latency to the no-load baseline taken as congestion.
+   */
+  private static final double LATENCY_TOLERANCE = 2.0;
+
+  /**
+   * The baseline moves this fraction of the way toward each higher sample, so a lasting change in the network is
+   * not mistaken for queueing forever.
+   */
+  private static final double BASELINE_DRIFT = 0.001;
+
+  private final boolean adaptive;
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxQueued;
+
+  private final Queue<Runnable> queue = new ArrayDeque<>();
+  private double limit;
+  private int inFlight;
+  private long rejected;
+  private double baselineNanos = Double.NaN;
+  private boolean drained;
+
+  /**
+   * @param  adaptive  {@code true} to adapt the limit between {@code minLimit} and {@code maxLimit}, starting at
+   *                   {@code minLimit}, or {@code false} for a fixed limit of {@code maxLimit}
+   */
+  ConnectLimiter(boolean adaptive, int minLimit, int maxLimit, int maxQueued) {
+    this.adaptive = adaptive;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxQueued = maxQueued;
+    this.limit = adaptive ? minLimit : maxLimit;
+  }
+
+  /**
+   * Runs the handshake now when under the limit, otherwise queues it.  Every handshake run must be followed by
+   * exactly one call to {@link #release(long)}.  Once {@linkplain #drain() drained}, handshakes are always run
+   * now, so none are queued where nothing would run them.
+   *
+   * @throws  RejectedExecutionException  when the queue is full
+   */
+  void submit(Runnable handshake) throws RejectedExecutionException {
+    synchronized (this) {
+      if (drained || inFlight < (int) limit) {
+        inFlight++;
+      } else if (queue.size() < maxQueued) {
+        queue.add(handshake);
+        return;
+      } else {
+        rejected++;
+        throw new RejectedExecutionException(
+            "Too many connects: inFlight = " + inFlight + ", limit = " + (int) limit + ", queued = " + queue.size()
+        );
+      }
+    }
+    handshake.run();
+  }
+
+  /**
+   * Called when a handshake completes, then runs any queued handshakes now under the limit.
+   *
+   * @param  latencyNanos  The latency of a successful handshake or {@code -1} on failure
+   */
+  void release(long latencyNanos) {
+    List<Runnable> ready = null;
+    synchronized (this) {
+      inFlight--;
+      if (adaptive) {
+        adjust(latencyNanos);
+      }
+      while (inFlight < (int) limit && !queue.isEmpty()) {
+        if (ready == null) {
+          ready = new ArrayList<>();
+        }
+        ready.add(queue.remove());
+        inFlight++;
+      }
+    }
+    if (ready != null) {
+      for (Runnable handshake : ready) {
+        handshake.run();
+      }
+    }
+  }
+
+  private void adjust(long latencyNanos) {
+    assert Thread.holdsLock(this);
+    boolean congested;
+    if (latencyNanos < 0) {
+      congested = true;
+    } else {
+      if (Double.isNaN(baselineNanos) || latencyNanos < baselineNanos) {
+        baselineNanos = latencyNanos;
+      } else {
+        baselineNanos += (latencyNanos - baselineNanos) * BASELINE_DRIFT;
+      }
+      congested = latencyNanos > baselineNanos * LATENCY_TOLERANCE;
+    }
+    if (congested) {
+      limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+    } else if (inFlight + 1 >= (int) limit) {
+      // Only grow while the limit is actually being reached
+      limit = Math.min(maxLimit, limit + 1 / limit);
+    }
+  }
+
+  /**
+   * Runs all queued handshakes regardless of the limit, and any later handshakes on submit, used on close so none
+   * are left waiting.
+   */
+  void drain() {
+    List<Runnable> ready;
+    synchronized (this) {
+      drained = true;
+      ready = new ArrayList<>(queue);
+      inFlight += queue.size();
+      queue.clear();
+    }
+    for (Runnable handshake : ready) {
+      handshake.run();
+    }
+  }
+
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  synchronized int getQueued() {
+    return queue.size();
+  }
+
+  synchronized long getRejected() {
+    return rejected;
+  }
+}
@@ -0,0 +1,341 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Allocation-minimal parser of the <code>&lt;connection id="..."/&gt;</code> connect response.  Parsing stops as
+ * soon as the root element start tag has been read.
+ *
+ * <p>Only the subset of XML a server actually sends is handled here: ASCII content in UTF-8 or US-ASCII, with an
+ * optional XML declaration, comments, and processing instructions before the root element.  Anything else,
+ * including a document type declaration, is left to a full XML parser.</p>
+ */
+final class ConnectionResponseParser {
+
+  /**
+   * The name of the root element.
+   */
+  static final String ROOT_NAME = "connection";
+
+  /**
+   * The name of the attribute containing the identifier.
+   */
+  static final String ID_ATTRIBUTE = "id";
+
+  private final byte[] buf;
+  private int pos;
+
+  private ConnectionResponseParser(byte[] buf) {
+    this.buf = buf;
+  }
+
+  /**
+   * Gets the value of the <code>id</code> attribute of the root element.
+   *
+   * @return  The value, or the empty string when missing, matching {@link org.w3c.dom.Element#getAttribute(java.lang.String)}.
+   *          {@code null} when the response is outside the supported subset and must be parsed by a full XML
+   *          parser.
+   *
+   * @throws  IOException  when the root element is not <code>connection</code>
+   */
+  static String parseId(byte[] response) throws IOException {
+    return new ConnectionResponseParser(response).parseId();
+  }
+
+  private String parseId() throws IOException {
+    // UTF-8 byte order mark
+    if (
+        buf.length >= 3
+            && (buf[0] & 0xFF) == 0xEF
+            && (buf[1] & 0xFF) == 0xBB
+            && (buf[2] & 0xFF) == 0xBF
+    ) {
+      pos = 3;
+    }
+    // XML declaration
+    if (startsWith("<?xml") && pos + 5 < buf.length && isWhitespace(buf[pos + 5])) {
+      int end = indexOf("?>", pos);
+      if (end == -1 || !isSupportedEncoding(pos, end)) {
+        return null;
+      }
+      pos = end + 2;
+    }
+    // Misc before root element
+    while (true) {
+      skipWhitespace();
+      if (startsWith("<!--")) {
+        int end = indexOf("-->", pos + 4);
+        if (end == -1) {
+          return null;
+        }
+        pos = end + 3;
+      } else if (startsWith("<?")) {
+        int end = indexOf("?>", pos + 2);
+        if (end == -1) {
+          return null;
+        }
+        pos = end + 2;
+      } else {
+        break;
+      }
+    }
+    // Root element name
+    if (pos >= buf.length || buf[pos] != '<') {
+      return null;
+    }
+    pos++;
+    int nameStart = pos;
+    while (pos < buf.length && isNameChar(buf[pos])) {
+      pos++;
+    }
+    if (pos == nameStart || pos >= buf.length) {
+      return null;
+    }
+    byte next = buf[pos];
+    if (!isWhitespace(next) && next != '/' && next != '>') {
+      return null;
+    }
+    if (!regionMatches(nameStart, pos, ROOT_NAME)) {
+      throw new IOException(
+          "Unexpected root node name: " + new String(buf, nameStart, pos - nameStart, StandardCharsets.US_ASCII)
+      );
+    }
+    // Attributes
+    while (true) {
+      boolean hadWhitespace = skipWhitespace();
+      if (pos >= buf.length) {
+        return null;
+      }
+      byte ch = buf[pos];
+      if (ch == '>' || ch == '/') {
+        // End of start tag without id attribute
+        return "";
+      }
+      if (!hadWhitespace) {
+        return null;
+      }
+      int attrStart = pos;
+      while (pos < buf.length && isNameChar(buf[pos])) {
+        pos++;
+      }
+      int attrEnd = pos;
+      if (attrEnd == attrStart) {
+        return null;
+      }
+      skipWhitespace();
+      if (pos >= buf.length || buf[pos] != '=') {
+        return null;
+      }
+      pos++;
+      skipWhitespace();
+      if (pos >= buf.length) {
+        return null;
+      }
+      byte quote = buf[pos];
+      if (quote != '"' && quote != '\'') {
+        return null;
+      }
+      pos++;
+      int valueStart = pos;
+      boolean simple = true;
+      while (pos < buf.length && buf[pos] != quote) {
+        byte b = buf[pos];
+        if (b == '<' || b < 0) {
+          return null;
+        }
+        if (b == '&' || b == '\t' || b == '\n' || b == '\r') {
+          simple = false;
+        }
+        pos++;
+      }
+      if (pos >= buf.length) {
+        return null;
+      }
+      int valueEnd = pos;
+      pos++;
+      if (regionMatches(attrStart, attrEnd, ID_ATTRIBUTE)) {
+        if (simple) {
+          return new String(buf, valueStart, valueEnd - valueStart, StandardCharsets.US_ASCII);
+        } else {
+          return normalizeAttributeValue(valueStart, valueEnd);
+        }
+      }
+    }
+  }
+
+  /**
+   * Decodes references and normalizes whitespace per
+   * <a href="https://www.w3.org/TR/xml/#AVNormalize">Attribute-Value Normalization</a>.
+   *
+   * @return  The value or {@code null} when an unsupported reference is found
+   */
+  private String normalizeAttributeValue(int start, int end) {
+    StringBuilder value = new StringBuilder(end - start);
+    int i = start;
+    while (i < end) {
+      byte b = buf[i];
+      if (b == '&') {
+        int semi = -1;
+        for (int j = i + 1; j < end; j++) {
+          if (buf[j] == ';') {
+            semi = j;
+            break;
+          }
+        }
+        if (semi == -1) {
+          return null;
+        }
+        String ref = new String(buf, i + 1, semi - i - 1, StandardCharsets.US_ASCII);
+        switch (ref) {
+          case "amp":
+            value.append('&');
+            break;
+          case "lt":
+            value.append('<');
+            break;
+          case "gt":
+            value.append('>');
+            break;
+          case "quot":
+            value.append('"');
+            break;
+          case "apos":
+            value.append('\'');
+            break;
+          default:
+            if (ref.length() < 2 || ref.charAt(0) != '#') {
+              return null;
+            }
+            try {
+              int codePoint = (ref.charAt(1) == 'x')
+                  ? Integer.parseInt(ref.substring(2), 16)
+                  : Integer.parseInt(ref.substring(1));
+              value.appendCodePoint(codePoint);
+            } catch (IllegalArgumentException e) {
+              return null;
+            }
+        }
+        i = semi + 1;
+      } else if (b == '\r') {
+        // Line ends are normalized first, so CR LF is a single space
+        value.append(' ');
+        i += (i + 1 < end && buf[i + 1] == '\n') ? 2 : 1;
+      } else {
+        value.append((b == '\t' || b == '\n') ? ' ' : (char) b);
+        i++;
+      }
+    }
+    return value.toString();
+  }
+
+  private boolean isSupportedEncoding(int start, int end) {
+    int encoding = indexOf("encoding", start);
+    if (encoding == -1 || encoding >= end) {
+      // Defaults to UTF-8
+      return true;
+    }
+    int i = encoding + 8;
+    while (i < end && (isWhitespace(buf[i]) || buf[i] == '=')) {
+      i++;
+    }
+    if (i >= end || (buf[i] != '"' && buf[i] != '\'')) {
+      return false;
+    }
+    byte quote = buf[i++];
+    int valueStart = i;
+    while (i < end && buf[i] != quote) {
+      i++;
+    }
+    return regionMatchesIgnoreCase(valueStart, i, "UTF-8") || regionMatchesIgnoreCase(valueStart, i, "US-ASCII");
+  }
+
+  /**
+   * @return  {@code true} when any whitespace was skipped
+   */
+  private boolean skipWhitespace() {
+    int start = pos;
+    while (pos < buf.length && isWhitespace(buf[pos])) {
+      pos++;
+    }
+    return pos != start;
+  }
+
+  private boolean startsWith(String prefix) {
+    return pos + prefix.length() <= buf.length && regionMatches(pos, pos + prefix.length(), prefix);
+  }
+
+  private int indexOf(String str, int from) {
+    int last = buf.length - str.length();
+    for (int i = from; i <= last; i++) {
+      if (regionMatches(i, i + str.length(), str)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private boolean regionMatches(int start, int end, String str) {
+    int len = str.length();
+    if (end - start != len) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (buf[start + i] != str.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean regionMatchesIgnoreCase(int start, int end, String str) {
+    int len = str.length();
+    if (end - start != len) {
+      return false;
+    }
+    for (int i = 0; i < len; i++) {
+      if (Character.toUpperCase((char) buf[start + i]) != str.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+  }
+
+  /**
+   * ASCII subset of XML name characters, including <code>':'</code> so prefixed names are compared whole, as
+   * {@link org.w3c.dom.Node#getNodeName()} does.
+   */
+  private static boolean isNameChar(byte b) {
+    return (b >= 'a' && b <= 'z')
+        || (b >= 'A' && b <= 'Z')
+        || (b >= '0' && b <= '9')
+        || b == '_' || b == ':' || b == '-' || b == '.';
+  }
+}
@@ -0,0 +1,327 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.concurrent.Executors;
+import java.io.Closeable;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Caches host name resolution so connects do not block on DNS in the steady state.
+ *
+ * <p>Entries are kept for the time-to-live.  Once an entry has reached {@link #REFRESH_AHEAD} of its
+ * time-to-live, the next use triggers a background refresh while the cached addresses continue to be used.  Only
+ * a host never seen before, or not used for a full time-to-live, is resolved on the calling thread.  Should a
+ * refresh fail, the previous addresses are used until a later resolution succeeds, and no further resolution of
+ * the host is attempted for the negative time-to-live.</p>
+ *
+ * <p>Up to 1024 hosts are cached.  Once full, expired entries are evicted for new hosts.  When none can be evicted,
+ * further hosts are resolved without being cached.</p>
+ *
+ * <p>When a host has several addresses, {@link #resolve(java.lang.String)} rotates through them.</p>
+ *
+ * <p>The JVM resolver does not expose the time-to-live of DNS records, so a fixed time-to-live is used.  The
+ * JVM keeps its own cache, controlled by the <code>networkaddress.cache.ttl</code> security property; the
+ * time-to-live here should not be shorter than that.</p>
+ *
+ * <p>This class is thread-safe.  It must be {@linkplain #close() closed} when no longer needed.</p>
+ *
+ * @see  NioTransport#getDnsCache()
+ */
+public class DnsCache implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(DnsCache.class.getName());
+
+  /**
+   * The default time-to-live in milliseconds, matching the JVM default positive cache.
+   */
+  public static final long DEFAULT_TTL = 30L * 1000;
+
+  /**
+   * The default negative time-to-live in milliseconds, matching the JVM default negative cache.
+   */
+  public static final long DEFAULT_NEGATIVE_TTL = 10L * 1000;
+
+  /**
+   * The fraction of the time-to-live after which entries are refreshed in the background.
+   */
+  public static final double REFRESH_AHEAD = 0.8;
+
+  private static final int MAX_HOSTS = 1024;
+
+  private static final class Entry {
+
+    private final InetAddress[] addresses;
+    private final long resolvedNanos;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /**
+     * The {@link System#nanoTime()} before which no resolution is attempted, after a failed one.
+     */
+    private volatile long retryNanos;
+
+    private Entry(InetAddress[] addresses, long resolvedNanos) {
+      this.addresses = addresses;
+      this.resolvedNanos = resolvedNanos;
+      this.retryNanos = resolvedNanos;
+    }
+
+    private boolean isBackingOff(long now) {
+      return now - retryNanos < 0;
+    }
+  }
+
+  private final Executors executors = new Executors();
+
+  private final long ttl;
+
+  private final long ttlNanos;
+
+  private final long refreshNanos;
+
+  private final long negativeTtl;
+
+  private final long negativeTtlNanos;
+
+  /**
+   * Keyed by host name.
+   */
+  private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong refreshes = new AtomicLong();
+
+  /**
+   * Creates a new cache with the default time-to-live and negative time-to-live.
+   *
+   * @see  #DEFAULT_TTL
+   * @see  #DEFAULT_NEGATIVE_TTL
+   */
+  public DnsCache() {
+    this(DEFAULT_TTL);
+  }
+
+  /**
+   * Creates a new cache with the default negative time-to-live.
+   *
+   * @param  ttl  The time-to-live in milliseconds
+   *
+   * @see  #DEFAULT_NEGATIVE_TTL
+   */
+  public DnsCache(long ttl) {
+    this(ttl, DEFAULT_NEGATIVE_TTL);
+  }
+
+  /**
+   * Creates a new cache.
+   *
+   * @param  ttl  The time-to-live in milliseconds
+   * @param  negativeTtl  The time in milliseconds no resolution of a host is attempted after one has failed,
+   *                      {@code 0} to retry on the next use
+   */
+  public DnsCache(long ttl, long negativeTtl) {
+    if (ttl < 1) {
+      throw new IllegalArgumentException("ttl < 1: " + ttl);
+    }
+    if (negativeTtl < 0) {
+      throw new IllegalArgumentException("negativeTtl < 0: " + negativeTtl);
+    }
+    this.ttl = ttl;
+    this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttl);
+    this.refreshNanos = (long) (ttlNanos * REFRESH_AHEAD);
+    this.negativeTtl = negativeTtl;
+    this.negativeTtlNanos = TimeUnit.MILLISECONDS.toNanos(negativeTtl);
+  }
+
+  /**
+   * Stops any background refreshes.
+   */
+  @Override
+  public void close() {
+    executors.close();
+  }
+
+  /**
+   * Gets the time-to-live in milliseconds.
+   */
+  public long getTtl() {
+    return ttl;
+  }
+
+  /**
+   * Gets the negative time-to-live in milliseconds.
+   */
+  public long getNegativeTtl() {
+    return negativeTtl;
+  }
+
+  /**
+   * Gets the number of resolutions answered from the cache.
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * Gets the number of resolutions performed on the calling thread.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * Gets the number of background refreshes started.
+   */
+  public long getRefreshes() {
+    return refreshes.get();
+  }
+
+  /**
+   * Resolves a host to one of its addresses, rotating through the addresses on each call.
+   */
+  public InetAddress resolve(String host) throws UnknownHostException {
+    Entry entry = getEntry(host);
+    InetAddress[] addresses = entry.addresses;
+    return addresses[Math.floorMod(entry.next.getAndIncrement(), addresses.length)];
+  }
+
+  /**
+   * Resolves all the addresses of a host.
+   *
+   * @return  A new array, which the caller may modify
+   */
+  public InetAddress[] resolveAll(String host) throws UnknownHostException {
+    return getEntry(host).addresses.clone();
+  }
+
+  /**
+   * Resolves a host in the background, so later resolutions are answered from the cache.  Failures are logged.
+   */
+  public void prefetch(String host) {
+    Entry entry = entries.get(host);
+    long now = System.nanoTime();
+    if (entry == null || (now - entry.resolvedNanos >= refreshNanos && !entry.isBackingOff(now))) {
+      refresh(host, entry);
+    }
+  }
+
+  /**
+   * Performs the actual resolution.  Subclasses may override this to use another resolver.
+   */
+  protected InetAddress[] lookup(String host) throws UnknownHostException {
+    return InetAddress.getAllByName(host);
+  }
+
+  private Entry getEntry(String host) throws UnknownHostException {
+    Entry entry = entries.get(host);
+    if (entry != null) {
+      long now = System.nanoTime();
+      long age = now - entry.resolvedNanos;
+      if (age < ttlNanos) {
+        if (age >= refreshNanos && !entry.isBackingOff(now)) {
+          refresh(host, entry);
+        }
+        hits.incrementAndGet();
+        return entry;
+      }
+      if (entry.isBackingOff(now)) {
+        // Expired, but the last resolution failed too recently to try again
+        hits.incrementAndGet();
+        return entry;
+      }
+    }
+    misses.incrementAndGet();
+    InetAddress[] addresses;
+    try {
+      addresses = lookup(host);
+    } catch (UnknownHostException e) {
+      if (entry != null) {
+        logger.log(Level.WARNING, "Using expired addresses of " + host, e);
+        entry.retryNanos = System.nanoTime() + negativeTtlNanos;
+        return entry;
+      }
+      throw e;
+    }
+    Entry newEntry = new Entry(addresses, System.nanoTime());
+    put(host, newEntry);
+    return newEntry;
+  }
+
+  /**
+   * Caches an entry, evicting expired entries once full.  When none can be evicted, the entry is not cached.
+   */
+  private void put(String host, Entry entry) {
+    if (entries.size() >= MAX_HOSTS && !entries.containsKey(host)) {
+      long now = System.nanoTime();
+      entries.values().removeIf(e -> now - e.resolvedNanos >= ttlNanos);
+      if (entries.size() >= MAX_HOSTS) {
+        return;
+      }
+    }
+    entries.put(host, entry);
+  }
+
+  /**
+   * Starts a background refresh, unless one is already in progress for the entry.
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void refresh(String host, Entry entry) {
+    if (entry != null && !entry.refreshing.compareAndSet(false, true)) {
+      return;
+    }
+    refreshes.incrementAndGet();
+    try {
+      executors.getUnbounded().submit(() -> {
+        try {
+          put(host, new Entry(lookup(host), System.nanoTime()));
+        } catch (UnknownHostException e) {
+          logger.log(Level.FINE, "Unable to refresh " + host, e);
+          if (entry != null) {
+            entry.retryNanos = System.nanoTime() + negativeTtlNanos;
+            entry.refreshing.set(false);
+          }
+        }
+      });
+    } catch (Throwable t) {
+      // Closed
+      logger.log(Level.FINE, null, t);
+      if (entry != null) {
+        entry.refreshing.set(false);
+      }
+    }
+  }
+}
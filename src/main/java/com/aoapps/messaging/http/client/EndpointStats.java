@@ -0,0 +1,149 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connect handshake statistics of one endpoint, as exponentially weighted moving averages.
+ *
+ * <p>Instances are thread-safe.</p>
+ *
+ * @see  HttpSocketClient#getEndpointStats(java.net.URL)
+ */
+public final class EndpointStats {
+
+  /**
+   * The weight of each new sample.
+   */
+  private static final double ALPHA = 0.3;
+
+  /**
+   * Endpoints with an error rate at or above this are considered unhealthy.
+   */
+  private static final double UNHEALTHY_ERROR_RATE = 0.5;
+
+  /**
+   * The number of recent latencies kept for percentiles.
+   */
+  private static final int LATENCY_SAMPLES = 100;
+
+  /**
+   * The minimum number of samples before a percentile is available.
+   */
+  private static final int MIN_PERCENTILE_SAMPLES = 10;
+
+  private final String endpoint;
+
+  private long successes;
+  private long failures;
+  private double latencyNanos;
+  private double errorRate;
+  private final long[] recentLatencies = new long[LATENCY_SAMPLES];
+
+  EndpointStats(String endpoint) {
+    this.endpoint = endpoint;
+  }
+
+  @Override
+  public String toString() {
+    synchronized (this) {
+      return endpoint
+          + " (latency=" + TimeUnit.NANOSECONDS.toMicros((long) latencyNanos) + " us"
+          + ", errorRate=" + errorRate
+          + ", successes=" + successes
+          + ", failures=" + failures
+          + ')';
+    }
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  synchronized void recordSuccess(long nanos) {
+    latencyNanos = (successes == 0) ? nanos : (latencyNanos + ALPHA * (nanos - latencyNanos));
+    errorRate -= ALPHA * errorRate;
+    recentLatencies[(int) (successes % LATENCY_SAMPLES)] = nanos;
+    successes++;
+  }
+
+  synchronized void recordFailure() {
+    errorRate += ALPHA * (1 - errorRate);
+    failures++;
+  }
+
+  /**
+   * Gets the moving average handshake latency in nanoseconds of successful connects, {@code 0} when none yet.
+   */
+  public synchronized long getLatencyNanos() {
+    return (long) latencyNanos;
+  }
+
+  /**
+   * Gets a percentile of the recent handshake latencies of successful connects.
+   *
+   * @param  percentile  The percentile, between {@code 0} (exclusive) and {@code 1} (inclusive)
+   *
+   * @return  The latency in nanoseconds or {@code -1} when there are not yet enough samples
+   */
+  public long getLatencyPercentile(double percentile) {
+    if (!(percentile > 0 && percentile <= 1)) {
+      throw new IllegalArgumentException("percentile out of range (0, 1]: " + percentile);
+    }
+    long[] sorted;
+    synchronized (this) {
+      int count = (int) Math.min(successes, LATENCY_SAMPLES);
+      if (count < MIN_PERCENTILE_SAMPLES) {
+        return -1;
+      }
+      sorted = Arrays.copyOf(recentLatencies, count);
+    }
+    Arrays.sort(sorted);
+    return sorted[(int) Math.ceil(percentile * sorted.length) - 1];
+  }
+
+  /**
+   * Gets the moving average error rate, between {@code 0} and {@code 1}.
+   */
+  public synchronized double getErrorRate() {
+    return errorRate;
+  }
+
+  public synchronized long getSuccesses() {
+    return successes;
+  }
+
+  public synchronized long getFailures() {
+    return failures;
+  }
+
+  /**
+   * Is the error rate below the unhealthy threshold?
+   */
+  public synchronized boolean isHealthy() {
+    return errorRate < UNHEALTHY_ERROR_RATE;
+  }
+}
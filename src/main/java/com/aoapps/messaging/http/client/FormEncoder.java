@@ -0,0 +1,72 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes request parameters as <code>application/x-www-form-urlencoded</code>.
+ *
+ * <p>Constant requests should be encoded once and shared, since the transports never modify the request
+ * bytes.</p>
+ */
+final class FormEncoder {
+
+  private final StringBuilder encoded = new StringBuilder();
+
+  FormEncoder() {
+    // Nothing to do
+  }
+
+  /**
+   * Adds a parameter.
+   *
+   * @return  {@code this}
+   */
+  FormEncoder add(String name, String value) {
+    if (encoded.length() > 0) {
+      encoded.append('&');
+    }
+    encoded.append(encode(name)).append('=').append(encode(value));
+    return this;
+  }
+
+  /**
+   * Gets the encoded request.
+   */
+  byte[] toByteArray() {
+    // URL encoding is always ASCII
+    return encoded.toString().getBytes(StandardCharsets.US_ASCII);
+  }
+
+  private static String encode(String s) {
+    try {
+      return URLEncoder.encode(s, StandardCharsets.UTF_8.name());
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError("Standard encoding must be supported", e);
+    }
+  }
+}
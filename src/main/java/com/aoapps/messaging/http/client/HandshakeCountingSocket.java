@@ -0,0 +1,435 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.nio.channels.SocketChannel;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Delegates to a TLS socket, counting its initial handshake with the {@link TlsSocketFactory} that created it.
+ *
+ * <p>The handshake is counted on the calling thread, once {@link #startHandshake()} or {@link #getSession()}
+ * returns a negotiated session.  This avoids a {@link HandshakeCompletedListener}, which is notified on a new
+ * thread per handshake.  A handshake started implicitly by the first read or write is only counted once the
+ * session is requested, which {@link javax.net.ssl.HttpsURLConnection} always does.</p>
+ *
+ * <p>Every overridable method of {@link java.net.Socket} and {@link SSLSocket} is forwarded to the delegate.  The
+ * methods added in Java 9 are forwarded by the subclass in the Java 11+ layer of this multi-release JAR, selected
+ * by {@link HandshakeCountingSockets}.</p>
+ *
+ * <p>{@link javax.net.ssl.HttpsURLConnection} only passes the host name to an unconnected socket of the JDK's own
+ * implementation, so the server name indication is set here when connecting to an unresolved or named address,
+ * unless server names have already been configured.</p>
+ */
+class HandshakeCountingSocket extends SSLSocket {
+
+  /**
+   * The cipher suite of the session of a socket whose handshake has not completed or has failed.
+   */
+  private static final String NULL_CIPHER_SUITE = "SSL_NULL_WITH_NULL_NULL";
+
+  private final TlsSocketFactory factory;
+  final SSLSocket delegate;
+  private final long createdTime;
+  private final AtomicBoolean counted = new AtomicBoolean();
+
+  HandshakeCountingSocket(TlsSocketFactory factory, SSLSocket delegate) {
+    this.factory = factory;
+    this.delegate = delegate;
+    this.createdTime = System.currentTimeMillis();
+  }
+
+  private void count(SSLSession session) {
+    if (
+        session != null
+            && !NULL_CIPHER_SUITE.equals(session.getCipherSuite())
+            && counted.compareAndSet(false, true)
+    ) {
+      // A session taken from the client session cache was created before this socket
+      factory.countHandshake(session.getCreationTime() < createdTime);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return delegate.toString();
+  }
+
+  @Override
+  public String[] getSupportedCipherSuites() {
+    return delegate.getSupportedCipherSuites();
+  }
+
+  @Override
+  public String[] getEnabledCipherSuites() {
+    return delegate.getEnabledCipherSuites();
+  }
+
+  @Override
+  public void setEnabledCipherSuites(String[] suites) {
+    delegate.setEnabledCipherSuites(suites);
+  }
+
+  @Override
+  public String[] getSupportedProtocols() {
+    return delegate.getSupportedProtocols();
+  }
+
+  @Override
+  public String[] getEnabledProtocols() {
+    return delegate.getEnabledProtocols();
+  }
+
+  @Override
+  public void setEnabledProtocols(String[] protocols) {
+    delegate.setEnabledProtocols(protocols);
+  }
+
+  @Override
+  public SSLSession getSession() {
+    SSLSession session = delegate.getSession();
+    count(session);
+    return session;
+  }
+
+  @Override
+  public SSLSession getHandshakeSession() {
+    return delegate.getHandshakeSession();
+  }
+
+  @Override
+  public void addHandshakeCompletedListener(HandshakeCompletedListener listener) {
+    delegate.addHandshakeCompletedListener(listener);
+  }
+
+  @Override
+  public void removeHandshakeCompletedListener(HandshakeCompletedListener listener) {
+    delegate.removeHandshakeCompletedListener(listener);
+  }
+
+  @Override
+  public void startHandshake() throws IOException {
+    delegate.startHandshake();
+    count(delegate.getSession());
+  }
+
+  @Override
+  public void setUseClientMode(boolean mode) {
+    delegate.setUseClientMode(mode);
+  }
+
+  @Override
+  public boolean getUseClientMode() {
+    return delegate.getUseClientMode();
+  }
+
+  @Override
+  public void setNeedClientAuth(boolean need) {
+    delegate.setNeedClientAuth(need);
+  }
+
+  @Override
+  public boolean getNeedClientAuth() {
+    return delegate.getNeedClientAuth();
+  }
+
+  @Override
+  public void setWantClientAuth(boolean want) {
+    delegate.setWantClientAuth(want);
+  }
+
+  @Override
+  public boolean getWantClientAuth() {
+    return delegate.getWantClientAuth();
+  }
+
+  @Override
+  public void setEnableSessionCreation(boolean flag) {
+    delegate.setEnableSessionCreation(flag);
+  }
+
+  @Override
+  public boolean getEnableSessionCreation() {
+    return delegate.getEnableSessionCreation();
+  }
+
+  @Override
+  public SSLParameters getSSLParameters() {
+    return delegate.getSSLParameters();
+  }
+
+  @Override
+  public void setSSLParameters(SSLParameters params) {
+    delegate.setSSLParameters(params);
+  }
+
+  /**
+   * Sets the server name indication to the host name of the endpoint, unless already configured or the endpoint
+   * has no host name.
+   */
+  private void setServerName(SocketAddress endpoint) {
+    if (endpoint instanceof InetSocketAddress) {
+      InetSocketAddress socketAddress = (InetSocketAddress) endpoint;
+      String host = socketAddress.getHostString();
+      InetAddress address = socketAddress.getAddress();
+      // IP literals are not sent as server names
+      if (
+          host != null
+              && host.indexOf(':') == -1
+              && (address == null || !host.equals(address.getHostAddress()))
+      ) {
+        SSLParameters params = delegate.getSSLParameters();
+        List<SNIServerName> serverNames = params.getServerNames();
+        if (serverNames == null || serverNames.isEmpty()) {
+          SNIHostName serverName;
+          try {
+            serverName = new SNIHostName(host);
+          } catch (IllegalArgumentException e) {
+            // Not a valid server name, such as one ending in a period
+            return;
+          }
+          params.setServerNames(Collections.singletonList(serverName));
+          delegate.setSSLParameters(params);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void connect(SocketAddress endpoint) throws IOException {
+    setServerName(endpoint);
+    delegate.connect(endpoint);
+  }
+
+  @Override
+  public void connect(SocketAddress endpoint, int timeout) throws IOException {
+    setServerName(endpoint);
+    delegate.connect(endpoint, timeout);
+  }
+
+  @Override
+  public void bind(SocketAddress bindpoint) throws IOException {
+    delegate.bind(bindpoint);
+  }
+
+  @Override
+  public InetAddress getInetAddress() {
+    return delegate.getInetAddress();
+  }
+
+  @Override
+  public InetAddress getLocalAddress() {
+    return delegate.getLocalAddress();
+  }
+
+  @Override
+  public int getPort() {
+    return delegate.getPort();
+  }
+
+  @Override
+  public int getLocalPort() {
+    return delegate.getLocalPort();
+  }
+
+  @Override
+  public SocketAddress getRemoteSocketAddress() {
+    return delegate.getRemoteSocketAddress();
+  }
+
+  @Override
+  public SocketAddress getLocalSocketAddress() {
+    return delegate.getLocalSocketAddress();
+  }
+
+  @Override
+  public SocketChannel getChannel() {
+    return delegate.getChannel();
+  }
+
+  @Override
+  public InputStream getInputStream() throws IOException {
+    return delegate.getInputStream();
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws IOException {
+    return delegate.getOutputStream();
+  }
+
+  @Override
+  public void setTcpNoDelay(boolean on) throws SocketException {
+    delegate.setTcpNoDelay(on);
+  }
+
+  @Override
+  public boolean getTcpNoDelay() throws SocketException {
+    return delegate.getTcpNoDelay();
+  }
+
+  @Override
+  public void setSoLinger(boolean on, int linger) throws SocketException {
+    delegate.setSoLinger(on, linger);
+  }
+
+  @Override
+  public int getSoLinger() throws SocketException {
+    return delegate.getSoLinger();
+  }
+
+  @Override
+  public void sendUrgentData(int data) throws IOException {
+    delegate.sendUrgentData(data);
+  }
+
+  @Override
+  public void setOOBInline(boolean on) throws SocketException {
+    delegate.setOOBInline(on);
+  }
+
+  @Override
+  public boolean getOOBInline() throws SocketException {
+    return delegate.getOOBInline();
+  }
+
+  @Override
+  public void setSoTimeout(int timeout) throws SocketException {
+    delegate.setSoTimeout(timeout);
+  }
+
+  @Override
+  public int getSoTimeout() throws SocketException {
+    return delegate.getSoTimeout();
+  }
+
+  @Override
+  public void setSendBufferSize(int size) throws SocketException {
+    delegate.setSendBufferSize(size);
+  }
+
+  @Override
+  public int getSendBufferSize() throws SocketException {
+    return delegate.getSendBufferSize();
+  }
+
+  @Override
+  public void setReceiveBufferSize(int size) throws SocketException {
+    delegate.setReceiveBufferSize(size);
+  }
+
+  @Override
+  public int getReceiveBufferSize() throws SocketException {
+    return delegate.getReceiveBufferSize();
+  }
+
+  @Override
+  public void setKeepAlive(boolean on) throws SocketException {
+    delegate.setKeepAlive(on);
+  }
+
+  @Override
+  public boolean getKeepAlive() throws SocketException {
+    return delegate.getKeepAlive();
+  }
+
+  @Override
+  public void setTrafficClass(int tc) throws SocketException {
+    delegate.setTrafficClass(tc);
+  }
+
+  @Override
+  public int getTrafficClass() throws SocketException {
+    return delegate.getTrafficClass();
+  }
+
+  @Override
+  public void setReuseAddress(boolean on) throws SocketException {
+    delegate.setReuseAddress(on);
+  }
+
+  @Override
+  public boolean getReuseAddress() throws SocketException {
+    return delegate.getReuseAddress();
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+
+  @Override
+  public void shutdownInput() throws IOException {
+    delegate.shutdownInput();
+  }
+
+  @Override
+  public void shutdownOutput() throws IOException {
+    delegate.shutdownOutput();
+  }
+
+  @Override
+  public boolean isConnected() {
+    return delegate.isConnected();
+  }
+
+  @Override
+  public boolean isBound() {
+    return delegate.isBound();
+  }
+
+  @Override
+  public boolean isClosed() {
+    return delegate.isClosed();
+  }
+
+  @Override
+  public boolean isInputShutdown() {
+    return delegate.isInputShutdown();
+  }
+
+  @Override
+  public boolean isOutputShutdown() {
+    return delegate.isOutputShutdown();
+  }
+
+  @Override
+  public void setPerformancePreferences(int connectionTime, int latency, int bandwidth) {
+    delegate.setPerformancePreferences(connectionTime, latency, bandwidth);
+  }
+}
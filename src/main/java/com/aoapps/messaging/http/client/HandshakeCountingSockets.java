@@ -0,0 +1,44 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import javax.net.ssl.SSLSocket;
+
+/**
+ * Selects the socket that counts handshakes.  The Java 11+ layer of this multi-release JAR replaces this class.
+ */
+final class HandshakeCountingSockets {
+
+  /** Make no instances. */
+  private HandshakeCountingSockets() {
+    throw new AssertionError();
+  }
+
+  /**
+   * Wraps a TLS socket for this Java version.
+   */
+  static SSLSocket newInstance(TlsSocketFactory factory, SSLSocket delegate) {
+    return new HandshakeCountingSocket(factory, delegate);
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.concurrent.Callback;
+import com.aoapps.messaging.http.HttpSocket;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * One hedged connect: a second handshake is sent when the first has not completed within the hedge delay, and
+ * the first socket obtained wins.  The losing socket, if any, is closed.
+ *
+ * @see  HttpSocketClient#connectHedged(java.util.List, com.aoapps.concurrent.Callback, com.aoapps.concurrent.Callback)
+ */
+final class HedgedConnect {
+
+  private static final Logger logger = Logger.getLogger(HedgedConnect.class.getName());
+
+  private final HttpSocketClient client;
+  private final URL primary;
+  private final URL secondary;
+  private final Callback<? super HttpSocket> onSocket;
+  private final Callback<? super Throwable> onFailure;
+
+  private final Object lock = new Object();
+  private boolean done;
+  private boolean hedgeStarted;
+  private boolean hedgeDelayed;
+  private int inFlight;
+  private Throwable failure;
+  private ScheduledFuture<?> hedgeFuture;
+
+  HedgedConnect(
+      HttpSocketClient client,
+      URL primary,
+      URL secondary,
+      Callback<? super HttpSocket> onSocket,
+      Callback<? super Throwable> onFailure
+  ) {
+    this.client = client;
+    this.primary = primary;
+    this.secondary = secondary;
+    this.onSocket = onSocket;
+    this.onFailure = onFailure;
+  }
+
+  /**
+   * Sends the primary handshake and schedules the hedge.
+   *
+   * @param  hedgeDelay  The delay in milliseconds before sending the hedge
+   */
+  void start(long hedgeDelay) {
+    synchronized (lock) {
+      inFlight++;
+    }
+    client.handshake(primary, socket -> onSocket(socket, false), this::onFailure);
+    synchronized (lock) {
+      if (!done && !hedgeStarted) {
+        try {
+          // The hedge handshake may block, such as on name resolution, so it must not run on the scheduler thread
+          hedgeFuture = client.scheduleConnect(
+              () -> hedge(true),
+              hedgeDelay,
+              TimeUnit.MILLISECONDS,
+              e -> logger.log(Level.FINE, null, e)
+          );
+        } catch (RejectedExecutionException e) {
+          // Client closed
+          logger.log(Level.FINE, null, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Sends the second handshake, either after the hedge delay or immediately on failure of the first.
+   */
+  private void hedge(boolean delayed) {
+    synchronized (lock) {
+      if (done || hedgeStarted) {
+        return;
+      }
+      hedgeStarted = true;
+      hedgeDelayed = delayed;
+      inFlight++;
+    }
+    if (delayed) {
+      client.hedgeFired();
+    }
+    client.handshake(secondary, socket -> onSocket(socket, true), this::onFailure);
+  }
+
+  private void onSocket(HttpSocket socket, boolean isHedge) {
+    boolean win;
+    boolean hedgeWon;
+    synchronized (lock) {
+      inFlight--;
+      win = !done;
+      hedgeWon = isHedge && hedgeDelayed;
+      done = true;
+      if (hedgeFuture != null) {
+        hedgeFuture.cancel(false);
+      }
+    }
+    if (win) {
+      if (hedgeWon) {
+        client.hedgeWon();
+      }
+      onSocket.call(socket);
+    } else {
+      logger.log(Level.FINE, "Closing losing socket: {0}", socket);
+      try {
+        socket.close();
+      } catch (IOException e) {
+        logger.log(Level.FINE, null, e);
+      }
+    }
+  }
+
+  private void onFailure(Throwable t) {
+    boolean failover = false;
+    Throwable report = null;
+    synchronized (lock) {
+      inFlight--;
+      if (done) {
+        return;
+      }
+      if (failure != null) {
+        t.addSuppressed(failure);
+      }
+      failure = t;
+      if (!hedgeStarted) {
+        if (hedgeFuture != null) {
+          hedgeFuture.cancel(false);
+        }
+        failover = true;
+      } else if (inFlight == 0) {
+        done = true;
+        report = failure;
+      }
+    }
+    if (failover) {
+      hedge(false);
+    } else if (report != null) {
+      onFailure.call(report);
+    }
+  }
+}
@@ -0,0 +1,282 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.lang.io.AoByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Locale;
+
+/**
+ * Incremental, non-blocking parser of an HTTP/1.1 response.  Supports bodies delimited by
+ * <code>Content-Length</code>, <code>Transfer-Encoding: chunked</code>, or end of stream.
+ *
+ * <p>This class is not thread-safe.</p>
+ */
+final class HttpResponseParser {
+
+  private static final int MAX_LINE_LENGTH = 8 * 1024;
+
+  private enum State {
+    HEADERS,
+    BODY_LENGTH,
+    CHUNK_SIZE,
+    CHUNK_DATA,
+    CHUNK_DATA_END,
+    TRAILERS,
+    BODY_EOF,
+    DONE
+  }
+
+  private final int maxBodySize;
+
+  private State state = State.HEADERS;
+  private final StringBuilder line = new StringBuilder();
+  private int status = -1;
+  private long contentLength = -1;
+  private boolean chunked;
+  private boolean http10;
+  private boolean connectionClose;
+  private boolean connectionKeepAlive;
+  private boolean started;
+  private long remaining;
+  private final AoByteArrayOutputStream body = new AoByteArrayOutputStream();
+
+  HttpResponseParser(int maxBodySize) {
+    this.maxBodySize = maxBodySize;
+  }
+
+  /**
+   * Consumes bytes from the buffer.
+   *
+   * @return  {@code true} when the response is complete, in which case any bytes following the response are left
+   *          in the buffer
+   */
+  boolean feed(ByteBuffer buf) throws IOException {
+    if (buf.hasRemaining()) {
+      started = true;
+    }
+    while (state != State.DONE && buf.hasRemaining()) {
+      switch (state) {
+        case HEADERS:
+        case CHUNK_SIZE:
+        case CHUNK_DATA_END:
+        case TRAILERS:
+          if (readLine(buf)) {
+            String l = line.toString();
+            line.setLength(0);
+            onLine(l);
+          }
+          break;
+        case BODY_LENGTH:
+        case CHUNK_DATA:
+          {
+            int count = (int) Math.min(remaining, buf.remaining());
+            writeBody(buf, count);
+            remaining -= count;
+            if (remaining == 0) {
+              state = (state == State.CHUNK_DATA) ? State.CHUNK_DATA_END : State.DONE;
+            }
+          }
+          break;
+        case BODY_EOF:
+          writeBody(buf, buf.remaining());
+          break;
+        default:
+          throw new AssertionError(state);
+      }
+    }
+    return state == State.DONE;
+  }
+
+  /**
+   * Called when the end of stream is reached.
+   *
+   * @return  {@code true} when the response is complete
+   *
+   * @throws  EOFException  when the response is incomplete
+   */
+  boolean endOfStream() throws EOFException {
+    if (state == State.BODY_EOF) {
+      state = State.DONE;
+    }
+    if (state != State.DONE) {
+      throw new EOFException("Unexpected end of response");
+    }
+    return true;
+  }
+
+  int getStatus() {
+    return status;
+  }
+
+  /**
+   * Has any part of the response been received?
+   */
+  boolean isStarted() {
+    return started;
+  }
+
+  /**
+   * Is the server closing the connection after this response?  When {@code false}, the connection may be reused
+   * for another request.
+   */
+  boolean isConnectionClose() {
+    return connectionClose || (http10 && !connectionKeepAlive) || state == State.BODY_EOF;
+  }
+
+  byte[] getBody() {
+    return body.toByteArray();
+  }
+
+  /**
+   * Reads bytes into {@link #line} until end of line.
+   *
+   * @return  {@code true} when a full line has been read, without its line terminator
+   */
+  private boolean readLine(ByteBuffer buf) throws IOException {
+    while (buf.hasRemaining()) {
+      char ch = (char) (buf.get() & 0xFF);
+      if (ch == '\n') {
+        int len = line.length();
+        if (len > 0 && line.charAt(len - 1) == '\r') {
+          line.setLength(len - 1);
+        }
+        return true;
+      }
+      if (line.length() >= MAX_LINE_LENGTH) {
+        throw new IOException("Response line too long");
+      }
+      line.append(ch);
+    }
+    return false;
+  }
+
+  private void onLine(String l) throws IOException {
+    switch (state) {
+      case HEADERS:
+        if (status == -1) {
+          // Status line
+          if (!l.startsWith("HTTP/1.") || l.length() < 12 || l.charAt(8) != ' ') {
+            throw new IOException("Unexpected status line: " + l);
+          }
+          http10 = l.startsWith("HTTP/1.0");
+          try {
+            status = Integer.parseInt(l.substring(9, 12));
+          } catch (NumberFormatException e) {
+            throw new IOException("Unexpected status line: " + l, e);
+          }
+        } else if (l.isEmpty()) {
+          endHeaders();
+        } else {
+          int colon = l.indexOf(':');
+          if (colon == -1) {
+            throw new IOException("Unexpected header: " + l);
+          }
+          String name = l.substring(0, colon).trim();
+          String value = l.substring(colon + 1).trim();
+          if ("Content-Length".equalsIgnoreCase(name)) {
+            try {
+              contentLength = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+              throw new IOException("Unexpected Content-Length: " + value, e);
+            }
+            if (contentLength < 0) {
+              throw new IOException("Unexpected Content-Length: " + value);
+            }
+          } else if ("Transfer-Encoding".equalsIgnoreCase(name)) {
+            chunked = value.toLowerCase(Locale.ROOT).contains("chunked");
+          } else if ("Connection".equalsIgnoreCase(name)) {
+            String lower = value.toLowerCase(Locale.ROOT);
+            connectionClose = lower.contains("close");
+            connectionKeepAlive = lower.contains("keep-alive");
+          }
+        }
+        break;
+      case CHUNK_SIZE:
+        {
+          int semi = l.indexOf(';');
+          String hex = (semi == -1 ? l : l.substring(0, semi)).trim();
+          try {
+            remaining = Long.parseLong(hex, 16);
+          } catch (NumberFormatException e) {
+            throw new IOException("Unexpected chunk size: " + l, e);
+          }
+          if (remaining < 0) {
+            throw new IOException("Unexpected chunk size: " + l);
+          }
+          state = (remaining == 0) ? State.TRAILERS : State.CHUNK_DATA;
+        }
+        break;
+      case CHUNK_DATA_END:
+        if (!l.isEmpty()) {
+          throw new IOException("Unexpected data after chunk: " + l);
+        }
+        state = State.CHUNK_SIZE;
+        break;
+      case TRAILERS:
+        if (l.isEmpty()) {
+          state = State.DONE;
+        }
+        break;
+      default:
+        throw new AssertionError(state);
+    }
+  }
+
+  private void endHeaders() {
+    if (status >= 100 && status < 200) {
+      // Interim response, such as 100 Continue: the real response follows
+      status = -1;
+      contentLength = -1;
+      chunked = false;
+      connectionClose = false;
+      connectionKeepAlive = false;
+    } else if (status == 204 || status == 304) {
+      state = State.DONE;
+    } else if (chunked) {
+      state = State.CHUNK_SIZE;
+    } else if (contentLength != -1) {
+      remaining = contentLength;
+      state = (remaining == 0) ? State.DONE : State.BODY_LENGTH;
+    } else {
+      state = State.BODY_EOF;
+    }
+  }
+
+  private void writeBody(ByteBuffer buf, int count) throws IOException {
+    if (body.size() + (long) count > maxBodySize) {
+      throw new IOException("Response body too large, maxBodySize = " + maxBodySize);
+    }
+    if (buf.hasArray()) {
+      body.write(buf.array(), buf.arrayOffset() + buf.position(), count);
+      buf.position(buf.position() + count);
+    } else {
+      for (int i = 0; i < count; i++) {
+        body.write(buf.get());
+      }
+    }
+  }
+}
@@ -1,6 +1,6 @@
 /*
  * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
- * Copyright (C) 2014, 2015, 2016, 2019, 2020, 2021, 2022  AO Industries, Inc.
+ * Copyright (C) 2014, 2015, 2016, 2019, 2020, 2021, 2022, 2026  AO Industries, Inc.
  *     support@aoindustries.com
  *     7262 Bull Pen Cir
  *     Mobile, AL 36695
@@ -26,17 +26,42 @@ package com.aoapps.messaging.http.client;
 import com.aoapps.concurrent.Callback;
 import com.aoapps.concurrent.Executors;
 import com.aoapps.lang.Throwables;
-import com.aoapps.lang.io.AoByteArrayOutputStream;
 import com.aoapps.messaging.http.HttpSocket;
 import com.aoapps.messaging.http.HttpSocketContext;
 import com.aoapps.security.Identifier;
-import java.io.DataOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.Socket;
+import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
 import javax.xml.parsers.DocumentBuilder;
 import org.w3c.dom.Element;
 
@@ -47,106 +72,1590 @@ public class HttpSocketClient extends HttpSocketContext {
 
   private static final Logger logger = Logger.getLogger(HttpSocketClient.class.getName());
 
-  private static final int CONNECT_TIMEOUT = 15 * 1000;
+  /**
+   * The default connect timeout in milliseconds.
+   */
+  public static final int DEFAULT_CONNECT_TIMEOUT = 15 * 1000;
+
+  /**
+   * The default read timeout of the connect handshake in milliseconds.
+   */
+  public static final int DEFAULT_HANDSHAKE_READ_TIMEOUT = 15 * 1000;
+
+  /**
+   * The maximum number of parsed endpoint URLs cached.
+   */
+  public static final int MAX_ENDPOINT_URLS = 1024;
+
+  /**
+   * The default percentile of recent handshake latencies after which a hedged connect sends its second
+   * handshake.
+   */
+  public static final double DEFAULT_HEDGE_PERCENTILE = 0.95;
+
+  /**
+   * The default minimum delay in milliseconds before a hedged connect sends its second handshake.  This is also
+   * the delay used until enough latencies have been measured.
+   */
+  public static final int DEFAULT_HEDGE_MIN_DELAY = 100;
+
+  /**
+   * The default maximum number of connects queued beyond the limit on connects in flight.
+   */
+  public static final int DEFAULT_MAX_QUEUED_CONNECTS = 1024;
+
+  /**
+   * The request body of the connect handshake, encoded once and shared.
+   */
+  private static final byte[] CONNECT_REQUEST = new FormEncoder().add("action", "connect").toByteArray();
+
+  /**
+   * The maximum number of endpoints per-endpoint state is kept for, so connecting to arbitrary endpoints cannot
+   * grow it without bound.
+   */
+  private static final int MAX_TRACKED_ENDPOINTS = 1024;
+
+  /**
+   * The maximum number of idle document builders kept for reuse.
+   */
+  private static final int MAX_IDLE_DOCUMENT_BUILDERS = Runtime.getRuntime().availableProcessors() * 2;
 
   private final Executors executors = new Executors();
 
+  /**
+   * The executor running one virtual thread per task or {@code null} when using platform threads.
+   */
+  private final ExecutorService virtualThreadExecutor;
+
+  /**
+   * Runs the transport, including any blocking network I/O.
+   */
+  private final Executor connectExecutor;
+
+  /**
+   * Runs the {@code onConnect} and {@code onError} callbacks or {@code null} to call them directly on the
+   * connect thread.
+   */
+  private final Executor callbackExecutor;
+
+  private final HttpTransport transport;
+
+  /**
+   * Idle document builders, already {@linkplain DocumentBuilder#reset() reset}.
+   */
+  private final BlockingQueue<DocumentBuilder> documentBuilders = new ArrayBlockingQueue<>(MAX_IDLE_DOCUMENT_BUILDERS);
+
+  private final int connectTimeout;
+
+  private final int handshakeReadTimeout;
+
+  private final double hedgePercentile;
+
+  private final int hedgeMinDelay;
+
+  private final ConnectLimiter connectLimiter;
+
+  /**
+   * Limits the rate of connects of this client or {@code null} when unlimited.
+   */
+  private final TokenBucket connectBucket;
+
+  private final double endpointConnectRate;
+
+  private final int endpointConnectBurst;
+
+  /**
+   * Limits the rate of connects per endpoint, unused when unlimited.
+   */
+  private final ConcurrentMap<String, TokenBucket> endpointConnectBuckets = new ConcurrentHashMap<>();
+
+  /**
+   * The consecutive failures that open a circuit, {@code 0} when circuit breakers are not enabled.
+   */
+  private final int circuitBreakerThreshold;
+
+  private final long circuitBreakerOpenDelay;
+
+  private final ConcurrentMap<String, CircuitBreaker> circuitBreakers = new ConcurrentHashMap<>();
+
+  /**
+   * The connects waiting on the scheduler for the rate limits, failed by {@link #close()} since the scheduler
+   * discards its tasks on shutdown.  Each is removed by whichever of the scheduler or close gets it first.
+   */
+  private final Set<Runnable> delayedConnects = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The request body posted by {@link #prewarm(int, java.net.URL...)} or {@code null} when no action is posted.
+   */
+  private final byte[] prewarmRequest;
+
+  /**
+   * Does {@link #prewarm(int, java.net.URL...)} perform a full connect?
+   */
+  private final boolean prewarmConnect;
+
+  private final AtomicLong hedgesFired = new AtomicLong();
+
+  private final AtomicLong hedgesWon = new AtomicLong();
+
+  private final Object schedulerLock = new Object();
+
+  /**
+   * Runs delayed work, created on first use.
+   */
+  private ScheduledThreadPoolExecutor scheduler;
+
+  /**
+   * The parsed endpoint URLs, keyed by endpoint.
+   */
+  private final ConcurrentMap<String, URL> endpointUrls = new ConcurrentHashMap<>();
+
+  private final ConcurrentMap<String, EndpointStats> endpointStats = new ConcurrentHashMap<>();
+
+  /**
+   * Builds a {@link HttpSocketClient}.
+   */
+  public static class Builder {
+
+    private HttpTransport transport;
+    private boolean virtualThreads;
+    private Executor connectExecutor;
+    private Executor callbackExecutor;
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int handshakeReadTimeout = DEFAULT_HANDSHAKE_READ_TIMEOUT;
+    private double hedgePercentile = DEFAULT_HEDGE_PERCENTILE;
+    private int hedgeMinDelay = DEFAULT_HEDGE_MIN_DELAY;
+    private boolean adaptiveConnectLimit;
+    private int minConnectLimit = Integer.MAX_VALUE;
+    private int maxConnectLimit = Integer.MAX_VALUE;
+    private int maxQueuedConnects;
+    private double connectRate;
+    private int connectBurst;
+    private double endpointConnectRate;
+    private int endpointConnectBurst;
+    private int circuitBreakerThreshold;
+    private long circuitBreakerOpenDelay;
+    private SSLSocketFactory sslSocketFactory;
+    private String prewarmAction;
+    private boolean prewarmConnect;
+
+    protected Builder() {
+      // Nothing to do
+    }
+
+    /**
+     * The transport used for the connect handshake.  It is not closed by {@link HttpSocketClient#close()}.
+     * Defaults to <code>java.net.http.HttpClient</code> over HTTP/2 on Java 11+, otherwise
+     * {@link UrlConnectionTransport}.
+     */
+    public Builder transport(HttpTransport transport) {
+      this.transport = transport;
+      return this;
+    }
+
+    /**
+     * When {@code true} and running on Java 21+, each connect and its callbacks are run on a new virtual thread.
+     * Falls back to platform threads on older JVMs.  Ignored when a connect executor is provided.
+     */
+    public Builder virtualThreads(boolean virtualThreads) {
+      this.virtualThreads = virtualThreads;
+      return this;
+    }
+
+    /**
+     * Runs the connect handshake, including any blocking network I/O.  It is not shut down by
+     * {@link HttpSocketClient#close()}.
+     */
+    public Builder connectExecutor(Executor connectExecutor) {
+      this.connectExecutor = connectExecutor;
+      return this;
+    }
+
+    /**
+     * Runs the {@code onConnect} and {@code onError} callbacks, kept separate from the connect executor so
+     * slow callbacks cannot starve network I/O.  It is not shut down by {@link HttpSocketClient#close()}.
+     * Should it reject a task, the callback is called directly on the connect thread.
+     */
+    public Builder callbackExecutor(Executor callbackExecutor) {
+      this.callbackExecutor = callbackExecutor;
+      return this;
+    }
+
+    /**
+     * The connect timeout in milliseconds, {@code 0} for none.
+     *
+     * <p>The default transport on Java 11+ applies the handshake read timeout as the request timeout of
+     * <code>java.net.http.HttpClient</code>, which also bounds connecting.</p>
+     *
+     * @see  #DEFAULT_CONNECT_TIMEOUT
+     */
+    public Builder connectTimeout(int connectTimeout) {
+      this.connectTimeout = checkTimeout("connectTimeout", connectTimeout);
+      return this;
+    }
+
+    /**
+     * The read timeout of the connect handshake in milliseconds, {@code 0} for none.
+     *
+     * @see  #DEFAULT_HANDSHAKE_READ_TIMEOUT
+     */
+    public Builder handshakeReadTimeout(int handshakeReadTimeout) {
+      this.handshakeReadTimeout = checkTimeout("handshakeReadTimeout", handshakeReadTimeout);
+      return this;
+    }
+
+    /**
+     * The delay before a hedged connect sends its second handshake: the given percentile of the recent handshake
+     * latencies of the endpoint, but no less than the minimum delay.
+     *
+     * @param  percentile  The percentile, between {@code 0} (exclusive) and {@code 1} (inclusive)
+     * @param  minDelay  The minimum delay in milliseconds
+     *
+     * @see  #DEFAULT_HEDGE_PERCENTILE
+     * @see  #DEFAULT_HEDGE_MIN_DELAY
+     * @see  HttpSocketClient#connectHedged(java.util.List, com.aoapps.concurrent.Callback, com.aoapps.concurrent.Callback)
+     */
+    public Builder hedgeDelay(double percentile, int minDelay) {
+      if (!(percentile > 0 && percentile <= 1)) {
+        throw new IllegalArgumentException("percentile out of range (0, 1]: " + percentile);
+      }
+      this.hedgePercentile = percentile;
+      this.hedgeMinDelay = checkTimeout("minDelay", minDelay);
+      return this;
+    }
+
+    /**
+     * Limits the number of connects in flight to a fixed maximum.  Connects beyond the limit are queued, and
+     * connects beyond the queue fail with a {@link RejectedExecutionException}.  By default, there is no limit.
+     *
+     * @param  maxInFlight  The maximum number of connect handshakes in flight
+     * @param  maxQueued  The maximum number of connects waiting, {@code 0} to reject immediately at the limit
+     *
+     * @see  #DEFAULT_MAX_QUEUED_CONNECTS
+     */
+    public Builder connectLimit(int maxInFlight, int maxQueued) {
+      return connectLimit(false, maxInFlight, maxInFlight, maxQueued);
+    }
+
+    /**
+     * Limits the number of connects in flight to a limit adapted to the observed handshake latency.  The limit
+     * starts at {@code minInFlight}, grows while handshakes succeed without rising latency, and backs off on
+     * failure or when latency rises well beyond the no-load baseline.  Connects beyond the limit are queued, and
+     * connects beyond the queue fail with a {@link RejectedExecutionException}.
+     *
+     * @param  minInFlight  The initial and minimum limit on connect handshakes in flight
+     * @param  maxInFlight  The maximum limit on connect handshakes in flight
+     * @param  maxQueued  The maximum number of connects waiting, {@code 0} to reject immediately at the limit
+     *
+     * @see  #DEFAULT_MAX_QUEUED_CONNECTS
+     */
+    public Builder adaptiveConnectLimit(int minInFlight, int maxInFlight, int maxQueued) {
+      return connectLimit(true, minInFlight, maxInFlight, maxQueued);
+    }
+
+    private Builder connectLimit(boolean adaptive, int minInFlight, int maxInFlight, int maxQueued) {
+      if (minInFlight < 1) {
+        throw new IllegalArgumentException("minInFlight < 1: " + minInFlight);
+      }
+      if (maxInFlight < minInFlight) {
+        throw new IllegalArgumentException("maxInFlight < minInFlight: " + maxInFlight + " < " + minInFlight);
+      }
+      if (maxQueued < 0) {
+        throw new IllegalArgumentException("maxQueued < 0: " + maxQueued);
+      }
+      this.adaptiveConnectLimit = adaptive;
+      this.minConnectLimit = minInFlight;
+      this.maxConnectLimit = maxInFlight;
+      this.maxQueuedConnects = maxQueued;
+      return this;
+    }
+
+    /**
+     * Limits the rate of connects of the client as a whole.  Connects beyond the rate are delayed, without
+     * holding a thread, rather than failed.  By default, there is no limit.
+     *
+     * @param  perSecond  The sustained connects per second
+     * @param  burst  The maximum number of connects started at once without delay
+     *
+     * @see  TokenBucket
+     */
+    public Builder connectRate(double perSecond, int burst) {
+      TokenBucket.checkArguments(perSecond, burst);
+      this.connectRate = perSecond;
+      this.connectBurst = burst;
+      return this;
+    }
+
+    /**
+     * Limits the rate of connects to each endpoint, such as to respect a server-side quota.  Connects beyond the
+     * rate are delayed, without holding a thread, rather than failed.  By default, there is no limit.
+     *
+     * @param  perSecond  The sustained connects per second to each endpoint
+     * @param  burst  The maximum number of connects to each endpoint started at once without delay
+     *
+     * @see  TokenBucket
+     */
+    public Builder endpointConnectRate(double perSecond, int burst) {
+      TokenBucket.checkArguments(perSecond, burst);
+      this.endpointConnectRate = perSecond;
+      this.endpointConnectBurst = burst;
+      return this;
+    }
+
+    /**
+     * Enables a circuit breaker per endpoint, so connects to an endpoint that keeps failing fail fast with a
+     * {@link ConnectException} instead of waiting on the connect timeout.  By default, there are no circuit
+     * breakers.
+     *
+     * @param  failureThreshold  The number of consecutive failures that opens the circuit
+     * @param  openDelay  The time in milliseconds the circuit stays open before a single probe connect is allowed
+     *
+     * @see  CircuitBreaker
+     */
+    public Builder circuitBreaker(int failureThreshold, long openDelay) {
+      if (failureThreshold < 1) {
+        throw new IllegalArgumentException("failureThreshold < 1: " + failureThreshold);
+      }
+      if (openDelay < 0) {
+        throw new IllegalArgumentException("openDelay < 0: " + openDelay);
+      }
+      this.circuitBreakerThreshold = failureThreshold;
+      this.circuitBreakerOpenDelay = openDelay;
+      return this;
+    }
+
+    /**
+     * The factory used for the TLS connections of <code>https</code> endpoints, such as a {@link TlsSocketFactory}
+     * with a session cache sized for resumption.  The connect handshake then uses a {@link UrlConnectionTransport}
+     * with this factory, so this may not be combined with {@link #transport(HttpTransport)};
+     * configure the transport itself instead.
+     */
+    public Builder sslSocketFactory(SSLSocketFactory sslSocketFactory) {
+      this.sslSocketFactory = sslSocketFactory;
+      return this;
+    }
+
+    /**
+     * The action posted by {@link HttpSocketClient#prewarm(java.net.URL...)}, such as a health check action of the
+     * server.  By default, no action is posted, and only name resolution and the TCP and TLS connection setup are
+     * warmed up.
+     *
+     * @see  #prewarmConnect(boolean)
+     */
+    public Builder prewarmAction(String prewarmAction) {
+      if (prewarmAction != null && prewarmAction.isEmpty()) {
+        throw new IllegalArgumentException("prewarmAction is empty");
+      }
+      this.prewarmAction = prewarmAction;
+      return this;
+    }
+
+    /**
+     * Whether {@link HttpSocketClient#prewarm(java.net.URL...)} performs a full connect, closing the resulting
+     * socket.  This also warms up the transport and the server, but each creates a connection on the server.
+     * Defaults to {@code false}.
+     *
+     * @see  #prewarmAction(java.lang.String)
+     */
+    public Builder prewarmConnect(boolean prewarmConnect) {
+      this.prewarmConnect = prewarmConnect;
+      return this;
+    }
+
+    public HttpSocketClient build() {
+      if (transport != null && sslSocketFactory != null) {
+        throw new IllegalStateException("transport and sslSocketFactory may not both be set");
+      }
+      if (prewarmAction != null && prewarmConnect) {
+        throw new IllegalStateException("prewarmAction and prewarmConnect may not both be set");
+      }
+      return new HttpSocketClient(this);
+    }
+  }
+
+  /**
+   * Creates a new builder.
+   */
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  private static int checkTimeout(String name, int timeout) {
+    if (timeout < 0) {
+      throw new IllegalArgumentException(name + " < 0: " + timeout);
+    }
+    return timeout;
+  }
+
+  /**
+   * Creates a new client using the default transport.  On Java 11+ this is built on
+   * <code>java.net.http.HttpClient</code> over HTTP/2, otherwise {@link UrlConnectionTransport}.
+   *
+   * @see  #builder()
+   */
+  public HttpSocketClient() {
+    this(new Builder());
+  }
+
+  /**
+   * Creates a new client using the given transport for the connect handshake.
+   * The transport is not closed by {@link #close()}.
+   *
+   * @see  #builder()
+   */
+  public HttpSocketClient(HttpTransport transport) {
+    this(new Builder().transport(checkTransport(transport)));
+  }
+
+  /**
+   * Creates a new client using the default transport.
+   *
+   * @param  virtualThreads  When {@code true} and running on Java 21+, each connect and its callbacks are run
+   *                         on a new virtual thread.  Falls back to platform threads on older JVMs.
+   *
+   * @see  #builder()
+   */
+  public HttpSocketClient(boolean virtualThreads) {
+    this(new Builder().virtualThreads(virtualThreads));
+  }
+
+  /**
+   * Creates a new client using the given transport for the connect handshake.
+   * The transport is not closed by {@link #close()}.
+   *
+   * @param  virtualThreads  When {@code true} and running on Java 21+, each connect and its callbacks are run
+   *                         on a new virtual thread.  Falls back to platform threads on older JVMs.
+   *
+   * @see  #builder()
+   */
+  public HttpSocketClient(HttpTransport transport, boolean virtualThreads) {
+    this(new Builder().transport(checkTransport(transport)).virtualThreads(virtualThreads));
+  }
+
+  /**
+   * Creates a new client using the default transport and the given executors, which may be shared by any number
+   * of clients.  The executors are not shut down by {@link #close()}.
+   *
+   * <p>Should the callback executor reject a task, the callback is called directly on the connect thread.</p>
+   *
+   * @param  connectExecutor  Runs the connect handshake, including any blocking network I/O
+   * @param  callbackExecutor  Runs the {@code onConnect} and {@code onError} callbacks, kept separate from the
+   *                           connect executor so slow callbacks cannot starve network I/O
+   *
+   * @see  #builder()
+   */
+  public HttpSocketClient(Executor connectExecutor, Executor callbackExecutor) {
+    this(
+        new Builder()
+            .connectExecutor(connectExecutor)
+            .callbackExecutor(callbackExecutor)
+    );
+  }
+
+  /**
+   * Creates a new client using the given transport and executors, which may be shared by any number of clients.
+   * Neither the transport nor the executors are closed by {@link #close()}.
+   *
+   * <p>Should the callback executor reject a task, the callback is called directly on the connect thread.</p>
+   *
+   * @param  connectExecutor  Runs the connect handshake, including any blocking network I/O
+   * @param  callbackExecutor  Runs the {@code onConnect} and {@code onError} callbacks, kept separate from the
+   *                           connect executor so slow callbacks cannot starve network I/O
+   *
+   * @see  #builder()
+   */
+  public HttpSocketClient(HttpTransport transport, Executor connectExecutor, Executor callbackExecutor) {
+    this(
+        new Builder()
+            .transport(checkTransport(transport))
+            .connectExecutor(connectExecutor)
+            .callbackExecutor(callbackExecutor)
+    );
+  }
+
+  private static HttpTransport checkTransport(HttpTransport transport) {
+    if (transport == null) {
+      throw new IllegalArgumentException("transport == null");
+    }
+    return transport;
+  }
+
+  protected HttpSocketClient(Builder builder) {
+    if (builder.transport != null) {
+      this.transport = builder.transport;
+    } else if (builder.sslSocketFactory != null) {
+      this.transport = new UrlConnectionTransport(builder.sslSocketFactory);
+    } else {
+      this.transport = DefaultTransport.getInstance();
+    }
+    if (builder.virtualThreads && builder.connectExecutor == null) {
+      virtualThreadExecutor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+      if (virtualThreadExecutor == null) {
+        logger.log(Level.WARNING, "Virtual threads not supported, falling back to platform threads");
+      }
+    } else {
+      virtualThreadExecutor = null;
+    }
+    Executor defaultExecutor;
+    if (virtualThreadExecutor != null) {
+      defaultExecutor = virtualThreadExecutor;
+    } else {
+      defaultExecutor = task -> executors.getUnbounded().submit(task);
+    }
+    this.connectExecutor = (builder.connectExecutor != null) ? builder.connectExecutor : defaultExecutor;
+    this.callbackExecutor = builder.callbackExecutor;
+    this.connectTimeout = builder.connectTimeout;
+    this.handshakeReadTimeout = builder.handshakeReadTimeout;
+    this.hedgePercentile = builder.hedgePercentile;
+    this.hedgeMinDelay = builder.hedgeMinDelay;
+    this.connectLimiter = new ConnectLimiter(
+        builder.adaptiveConnectLimit,
+        builder.minConnectLimit,
+        builder.maxConnectLimit,
+        builder.maxQueuedConnects
+    );
+    this.connectBucket = (builder.connectRate != 0) ? new TokenBucket(builder.connectRate, builder.connectBurst) : null;
+    this.endpointConnectRate = builder.endpointConnectRate;
+    this.endpointConnectBurst = builder.endpointConnectBurst;
+    this.circuitBreakerThreshold = builder.circuitBreakerThreshold;
+    this.circuitBreakerOpenDelay = builder.circuitBreakerOpenDelay;
+    this.prewarmRequest = (builder.prewarmAction == null) ? null
+        : new FormEncoder().add("action", builder.prewarmAction).toByteArray();
+    this.prewarmConnect = builder.prewarmConnect;
+  }
+
+  /**
+   * Gets the connect timeout in milliseconds.
+   */
+  public int getConnectTimeout() {
+    return connectTimeout;
+  }
+
+  /**
+   * Gets the read timeout of the connect handshake in milliseconds.
+   */
+  public int getHandshakeReadTimeout() {
+    return handshakeReadTimeout;
+  }
+
+  /**
+   * Gets the current limit on connects in flight, {@link Integer#MAX_VALUE} when unlimited.
+   *
+   * @see  Builder#connectLimit(int, int)
+   * @see  Builder#adaptiveConnectLimit(int, int, int)
+   */
+  public int getConnectLimit() {
+    return connectLimiter.getLimit();
+  }
+
+  /**
+   * Gets the number of connect handshakes in flight.
+   */
+  public int getConnectsInFlight() {
+    return connectLimiter.getInFlight();
+  }
+
+  /**
+   * Gets the number of connects waiting for the limit on connects in flight.
+   */
+  public int getConnectsQueued() {
+    return connectLimiter.getQueued();
+  }
+
+  /**
+   * Gets the number of connects rejected because the queue was full.
+   */
+  public long getConnectsRejected() {
+    return connectLimiter.getRejected();
+  }
+
+  /**
+   * Is this client running its tasks on virtual threads?
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreadExecutor != null;
+  }
+
   @Override
   public void close() {
     try {
       super.close();
     } finally {
-      executors.close();
+      try {
+        // Fail any connects delayed by the rate limits, then any queued connects
+        for (Runnable delayed : delayedConnects) {
+          if (delayedConnects.remove(delayed)) {
+            delayed.run();
+          }
+        }
+        connectLimiter.drain();
+        if (virtualThreadExecutor != null) {
+          virtualThreadExecutor.shutdown();
+        }
+      } finally {
+        try {
+          synchronized (schedulerLock) {
+            if (scheduler != null) {
+              scheduler.shutdownNow();
+            }
+          }
+        } finally {
+          executors.close();
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets the scheduler for delayed work, such as reconnect backoff.  It has a single thread, so scheduled tasks
+   * must not block.
+   */
+  ScheduledExecutorService getScheduler() {
+    synchronized (schedulerLock) {
+      if (scheduler == null) {
+        scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+          Thread thread = new Thread(runnable, HttpSocketClient.class.getSimpleName() + " scheduler");
+          thread.setDaemon(true);
+          return thread;
+        });
+        scheduler.setRemoveOnCancelPolicy(true);
+        if (isClosed()) {
+          scheduler.shutdown();
+        }
+      }
+      return scheduler;
     }
   }
 
+  /**
+   * Schedules a task to run on the connect executor after the given delay, so only the hand-off runs on the
+   * single scheduler thread.
+   *
+   * @param  onRejected  Called, on the scheduler thread, when the connect executor rejects the task
+   *
+   * @throws  RejectedExecutionException  when the scheduler has been shut down
+   */
+  ScheduledFuture<?> scheduleConnect(
+      Runnable task,
+      long delay,
+      TimeUnit unit,
+      Callback<? super RejectedExecutionException> onRejected
+  ) throws RejectedExecutionException {
+    return getScheduler().schedule(
+        () -> {
+          try {
+            connectExecutor.execute(task);
+          } catch (RejectedExecutionException e) {
+            onRejected.call(e);
+          }
+        },
+        delay,
+        unit
+    );
+  }
+
   /**
    * Asynchronously connects.
    */
-  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch", "AssignmentToCatchBlockParameter"})
   public void connect(
       String endpoint,
       Callback<? super HttpSocket> onConnect,
       Callback<? super Throwable> onError
   ) {
-    executors.getUnbounded().submit(() -> {
-      try {
-        // Build request bytes
-        final AoByteArrayOutputStream bout = new AoByteArrayOutputStream();
-        try {
-          try (DataOutputStream out = new DataOutputStream(bout)) {
-            out.writeBytes("action=connect");
+    connect(endpoint, connectTimeout, handshakeReadTimeout, onConnect, onError);
+  }
+
+  /**
+   * Asynchronously connects, overriding the timeouts of this client.
+   *
+   * @param  connectTimeout  The connect timeout in milliseconds, {@code 0} for none
+   * @param  handshakeReadTimeout  The read timeout of the connect handshake in milliseconds, {@code 0} for none
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  public void connect(
+      String endpoint,
+      int connectTimeout,
+      int handshakeReadTimeout,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    checkTimeout("connectTimeout", connectTimeout);
+    checkTimeout("handshakeReadTimeout", handshakeReadTimeout);
+    final URL endpointUrl;
+    try {
+      endpointUrl = getEndpointUrl(endpoint);
+    } catch (Throwable t) {
+      connectExecutor.execute(() -> dispatch(() -> callOnError(onError, t)));
+      return;
+    }
+    connectUrl(endpointUrl, connectTimeout, handshakeReadTimeout, onConnect, onError);
+  }
+
+  /**
+   * Asynchronously connects.
+   */
+  public void connect(
+      URL endpoint,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    connect(endpoint, connectTimeout, handshakeReadTimeout, onConnect, onError);
+  }
+
+  /**
+   * Asynchronously connects, overriding the timeouts of this client.
+   *
+   * @param  connectTimeout  The connect timeout in milliseconds, {@code 0} for none
+   * @param  handshakeReadTimeout  The read timeout of the connect handshake in milliseconds, {@code 0} for none
+   */
+  public void connect(
+      URL endpoint,
+      int connectTimeout,
+      int handshakeReadTimeout,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    checkTimeout("connectTimeout", connectTimeout);
+    checkTimeout("handshakeReadTimeout", handshakeReadTimeout);
+    connectUrl(internEndpointUrl(endpoint), connectTimeout, handshakeReadTimeout, onConnect, onError);
+  }
+
+  /**
+   * Asynchronously connects.
+   */
+  public void connect(
+      URI endpoint,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    connect(endpoint.toString(), connectTimeout, handshakeReadTimeout, onConnect, onError);
+  }
+
+  /**
+   * Asynchronously connects, overriding the timeouts of this client.
+   *
+   * @param  connectTimeout  The connect timeout in milliseconds, {@code 0} for none
+   * @param  handshakeReadTimeout  The read timeout of the connect handshake in milliseconds, {@code 0} for none
+   */
+  public void connect(
+      URI endpoint,
+      int connectTimeout,
+      int handshakeReadTimeout,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    connect(endpoint.toString(), connectTimeout, handshakeReadTimeout, onConnect, onError);
+  }
+
+  private void connectUrl(
+      URL endpointUrl,
+      int connectTimeout,
+      int handshakeReadTimeout,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    handshake(
+        endpointUrl,
+        connectTimeout,
+        handshakeReadTimeout,
+        httpSocket -> dispatch(() -> callOnConnect(onConnect, httpSocket)),
+        t -> dispatch(() -> callOnError(onError, t))
+    );
+  }
+
+  /**
+   * Gets the parsed URL of an endpoint.  Each endpoint is parsed once, and the same instance is shared by all its
+   * sockets.  Up to {@link #MAX_ENDPOINT_URLS} endpoints are cached, after which new endpoints are parsed on each
+   * call.
+   */
+  public URL getEndpointUrl(String endpoint) throws MalformedURLException {
+    URL endpointUrl = endpointUrls.get(endpoint);
+    if (endpointUrl == null) {
+      endpointUrl = new URL(endpoint);
+      if (endpointUrls.size() < MAX_ENDPOINT_URLS) {
+        URL existing = endpointUrls.putIfAbsent(endpoint, endpointUrl);
+        if (existing != null) {
+          endpointUrl = existing;
+        }
+      }
+    }
+    return endpointUrl;
+  }
+
+  /**
+   * Gets the cached instance equivalent to the given URL, or caches the given URL when not yet cached.
+   */
+  private URL internEndpointUrl(URL endpoint) {
+    // Keyed by String, since URL.equals may perform name resolution
+    String key = endpoint.toExternalForm();
+    URL existing = endpointUrls.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    if (endpointUrls.size() < MAX_ENDPOINT_URLS) {
+      existing = endpointUrls.putIfAbsent(key, endpoint);
+      if (existing != null) {
+        return existing;
+      }
+    }
+    return endpoint;
+  }
+
+  /**
+   * Asynchronously connects to the first of several equivalent endpoints that succeeds.
+   *
+   * <p>Endpoints are tried in order of preference: healthy endpoints first, by lowest moving average handshake
+   * latency, then unhealthy endpoints by lowest error rate.  Endpoints with an open circuit breaker or without
+   * any successful handshake are considered unhealthy.  Endpoints not yet tried at all are preferred, so they get
+   * measured.  On failure, the next endpoint is tried immediately.</p>
+   *
+   * @param  endpoints  The endpoints, in order of preference when their statistics are equal
+   * @param  onError  Called when all endpoints have failed, with the failure of the last endpoint and the
+   *                  others suppressed
+   *
+   * @see  #getEndpointStats(java.net.URL)
+   */
+  public void connect(
+      List<URL> endpoints,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    if (endpoints.isEmpty()) {
+      throw new IllegalArgumentException("endpoints is empty");
+    }
+    connectFailover(
+        orderEndpoints(endpoints).iterator(),
+        null,
+        httpSocket -> dispatch(() -> callOnConnect(onConnect, httpSocket)),
+        t -> dispatch(() -> callOnError(onError, t))
+    );
+  }
+
+  /**
+   * Asynchronously connects with a hedged request.  When the handshake has not completed within the hedge delay,
+   * a second handshake is sent, and the first socket obtained wins.  The losing socket, if any, is closed.
+   * Should the first handshake fail before the hedge delay, the second is sent immediately.
+   *
+   * <p>The first handshake is sent to the most preferred endpoint and the second to the next preferred, or to
+   * the same endpoint when only one is given.  Endpoints are ordered as in
+   * {@link #connect(java.util.List, com.aoapps.concurrent.Callback, com.aoapps.concurrent.Callback)}.</p>
+   *
+   * @param  onError  Called when both handshakes have failed, with the last failure and the other suppressed
+   *
+   * @see  Builder#hedgeDelay(double, int)
+   * @see  #getHedgesFired()
+   * @see  #getHedgesWon()
+   */
+  public void connectHedged(
+      List<URL> endpoints,
+      Callback<? super HttpSocket> onConnect,
+      Callback<? super Throwable> onError
+  ) {
+    if (endpoints.isEmpty()) {
+      throw new IllegalArgumentException("endpoints is empty");
+    }
+    List<URL> ordered = orderEndpoints(endpoints);
+    URL primary = ordered.get(0);
+    URL secondary = ordered.size() > 1 ? ordered.get(1) : primary;
+    long hedgeDelay = TimeUnit.NANOSECONDS.toMillis(getEndpointStats(primary).getLatencyPercentile(hedgePercentile));
+    new HedgedConnect(
+        this,
+        primary,
+        secondary,
+        httpSocket -> dispatch(() -> callOnConnect(onConnect, httpSocket)),
+        t -> dispatch(() -> callOnError(onError, t))
+    ).start(Math.max(hedgeMinDelay, hedgeDelay));
+  }
+
+  /**
+   * Gets the number of hedged connects that sent a second handshake after the hedge delay.
+   */
+  public long getHedgesFired() {
+    return hedgesFired.get();
+  }
+
+  /**
+   * Gets the number of hedged connects won by a second handshake sent after the hedge delay.
+   */
+  public long getHedgesWon() {
+    return hedgesWon.get();
+  }
+
+  void hedgeFired() {
+    hedgesFired.incrementAndGet();
+  }
+
+  void hedgeWon() {
+    hedgesWon.incrementAndGet();
+  }
+
+  /**
+   * Orders endpoints from most to least preferred.
+   */
+  private List<URL> orderEndpoints(List<URL> endpoints) {
+    List<Candidate> candidates = new ArrayList<>(endpoints.size());
+    for (URL endpoint : endpoints) {
+      endpoint = internEndpointUrl(endpoint);
+      CircuitBreaker breaker = getCircuitBreaker(endpoint);
+      candidates.add(new Candidate(endpoint, getEndpointStats(endpoint), breaker != null && breaker.isRejecting()));
+    }
+    // Stable sort keeps the given order for equal statistics
+    candidates.sort(CANDIDATE_PREFERENCE);
+    List<URL> ordered = new ArrayList<>(candidates.size());
+    for (Candidate candidate : candidates) {
+      ordered.add(candidate.endpoint);
+    }
+    return ordered;
+  }
+
+  /**
+   * A point-in-time view of the statistics of an endpoint, so the order stays consistent while sorting.
+   */
+  private static final class Candidate {
+
+    private final URL endpoint;
+    private final boolean unmeasured;
+    private final boolean healthy;
+    private final double errorRate;
+    private final long latencyNanos;
+
+    private Candidate(URL endpoint, EndpointStats stats, boolean circuitOpen) {
+      this.endpoint = endpoint;
+      synchronized (stats) {
+        long successes = stats.getSuccesses();
+        this.unmeasured = !circuitOpen && successes == 0 && stats.getFailures() == 0;
+        // Without any success, there is no latency to compare
+        this.healthy = !circuitOpen && successes > 0 && stats.isHealthy();
+        this.errorRate = stats.getErrorRate();
+        this.latencyNanos = stats.getLatencyNanos();
+      }
+    }
+  }
+
+  /**
+   * Orders candidates from most to least preferred.
+   */
+  private static final Comparator<Candidate> CANDIDATE_PREFERENCE = (c1, c2) -> {
+    if (c1.unmeasured != c2.unmeasured) {
+      return c1.unmeasured ? -1 : 1;
+    }
+    if (c1.unmeasured) {
+      return 0;
+    }
+    if (c1.healthy != c2.healthy) {
+      return c1.healthy ? -1 : 1;
+    }
+    if (!c1.healthy) {
+      return Double.compare(c1.errorRate, c2.errorRate);
+    }
+    return Long.compare(c1.latencyNanos, c2.latencyNanos);
+  };
+
+  private void connectFailover(
+      Iterator<URL> endpoints,
+      Throwable previous,
+      Callback<? super HttpSocket> onSocket,
+      Callback<? super Throwable> onFailure
+  ) {
+    URL endpointUrl = endpoints.next();
+    handshake(
+        endpointUrl,
+        onSocket,
+        t -> {
+          if (previous != null) {
+            t.addSuppressed(previous);
           }
-        } finally {
-          bout.close();
-        }
-        final long connectTime = System.currentTimeMillis();
-        final URL endpointUrl = new URL(endpoint);
-        final HttpURLConnection conn = (HttpURLConnection) endpointUrl.openConnection();
-        conn.setAllowUserInteraction(false);
-        conn.setConnectTimeout(CONNECT_TIMEOUT);
-        conn.setDoOutput(true);
-        conn.setFixedLengthStreamingMode(bout.size());
-        conn.setInstanceFollowRedirects(false);
-        conn.setReadTimeout(CONNECT_TIMEOUT);
-        conn.setRequestMethod("POST");
-        conn.setUseCaches(false);
-        // Write request
-        try (OutputStream out = conn.getOutputStream()) {
-          out.write(bout.getInternalByteArray(), 0, bout.size());
-          out.flush();
-        }
-        // Get response
-        int responseCode = conn.getResponseCode();
-        logger.log(Level.FINEST, "Got connection with response: {0}", responseCode);
-        if (responseCode != 200) {
-          throw new IOException("Unexpect response code: " + responseCode);
-        }
-        DocumentBuilder builder = builderFactory.newDocumentBuilder();
-        Element document = builder.parse(conn.getInputStream()).getDocumentElement();
-        if (!"connection".equals(document.getNodeName())) {
-          throw new IOException("Unexpected root node name: " + document.getNodeName());
-        }
-        Identifier id = Identifier.valueOf(document.getAttribute("id"));
-        logger.log(Level.FINEST, "Got id = ", id);
-        HttpSocket httpSocket = new HttpSocket(
-            HttpSocketClient.this,
-            id,
-            connectTime,
-            endpointUrl
+          if (endpoints.hasNext()) {
+            logger.log(Level.FINE, "Failing over from " + endpointUrl, t);
+            connectFailover(endpoints, t, onSocket, onFailure);
+          } else {
+            onFailure.call(t);
+          }
+        }
+    );
+  }
+
+  /**
+   * Gets the circuit breaker of the given endpoint.  Breakers are kept for up to 1024 endpoints.  Once full,
+   * closed breakers without failures or connects in flight are evicted, as they are equivalent to new ones.  When none can be
+   * evicted, a new, unretained breaker is returned, which never opens.
+   *
+   * @return  The circuit breaker or {@code null} when circuit breakers are not enabled
+   *
+   * @see  Builder#circuitBreaker(int, long)
+   */
+  public CircuitBreaker getCircuitBreaker(URL endpoint) {
+    if (circuitBreakerThreshold == 0) {
+      return null;
+    }
+    String key = endpoint.toExternalForm();
+    CircuitBreaker breaker = circuitBreakers.get(key);
+    if (breaker == null) {
+      breaker = new CircuitBreaker(key, circuitBreakerThreshold, circuitBreakerOpenDelay);
+      if (circuitBreakers.size() >= MAX_TRACKED_ENDPOINTS) {
+        circuitBreakers.values().removeIf(CircuitBreaker::evictIfIdle);
+      }
+      if (circuitBreakers.size() < MAX_TRACKED_ENDPOINTS) {
+        CircuitBreaker existing = circuitBreakers.putIfAbsent(key, breaker);
+        if (existing != null) {
+          breaker = existing;
+        }
+      }
+    }
+    return breaker;
+  }
+
+  /**
+   * Gets the connect handshake statistics of the given endpoint.  Statistics are kept for up to 1024 endpoints,
+   * after which a new, unretained instance is returned for further endpoints.
+   */
+  public EndpointStats getEndpointStats(URL endpoint) {
+    // Keyed by String, since URL.equals may perform name resolution
+    String key = endpoint.toExternalForm();
+    EndpointStats stats = endpointStats.get(key);
+    if (stats == null) {
+      stats = new EndpointStats(key);
+      if (endpointStats.size() < MAX_TRACKED_ENDPOINTS) {
+        EndpointStats existing = endpointStats.putIfAbsent(key, stats);
+        if (existing != null) {
+          stats = existing;
+        }
+      }
+    }
+    return stats;
+  }
+
+  /**
+   * Performs the connect handshake with the timeouts of this client.
+   *
+   * @see  #handshake(java.net.URL, int, int, com.aoapps.concurrent.Callback, com.aoapps.concurrent.Callback)
+   */
+  void handshake(URL endpointUrl, Callback<? super HttpSocket> onSocket, Callback<? super Throwable> onFailure) {
+    handshake(endpointUrl, connectTimeout, handshakeReadTimeout, onSocket, onFailure);
+  }
+
+  /**
+   * Performs the connect handshake and adds the new socket.  The callbacks are called on the connect thread and
+   * must not block.
+   */
+  private void handshake(
+      URL endpointUrl,
+      int connectTimeout,
+      int handshakeReadTimeout,
+      Callback<? super HttpSocket> onSocket,
+      Callback<? super Throwable> onFailure
+  ) {
+    CircuitBreaker breaker;
+    long allowed;
+    do {
+      breaker = getCircuitBreaker(endpointUrl);
+      allowed = (breaker == null) ? 0 : breaker.allow();
+    } while (allowed == CircuitBreaker.EVICTED);
+    if (allowed != CircuitBreaker.REJECTED) {
+      startHandshake(endpointUrl, connectTimeout, handshakeReadTimeout, breaker, allowed, onSocket, onFailure);
+    } else {
+      failLater(onFailure, new ConnectException("Circuit breaker open: " + endpointUrl));
+    }
+  }
+
+  /**
+   * Performs the connect handshake, once allowed by the circuit breaker.  Only the outcome of the exchange with
+   * the endpoint is recorded by the breaker; a connect rejected locally, such as by the connect limiter or the
+   * client being closed, releases the breaker without counting as a failure of the endpoint.
+   *
+   * @param  breaker  The circuit breaker that allowed the connect or {@code null} when not enabled
+   * @param  allowed  The value returned by {@link CircuitBreaker#allow()}
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void startHandshake(
+      URL endpointUrl,
+      int connectTimeout,
+      int handshakeReadTimeout,
+      CircuitBreaker breaker,
+      long allowed,
+      Callback<? super HttpSocket> onSocket,
+      Callback<? super Throwable> onFailure
+  ) {
+    final EndpointStats stats = getEndpointStats(endpointUrl);
+    final Callback<Throwable> onRejected = t -> {
+      if (breaker != null) {
+        breaker.release(allowed);
+      }
+      onFailure.call(t);
+    };
+    Runnable post = () -> {
+      if (isClosed()) {
+        connectLimiter.release(-1);
+        onRejected.call(new IllegalStateException("HttpSocketClient is closed"));
+        return;
+      }
+      final long connectTime = System.currentTimeMillis();
+      final long startNanos = System.nanoTime();
+      try {
+        transport.post(
+            connectExecutor,
+            endpointUrl,
+            CONNECT_REQUEST,
+            connectTimeout,
+            handshakeReadTimeout,
+            response -> {
+              HttpSocket httpSocket;
+              try {
+                httpSocket = newHttpSocket(connectTime, endpointUrl, response);
+              } catch (Throwable t) {
+                stats.recordFailure();
+                if (breaker != null) {
+                  breaker.recordFailure(allowed);
+                }
+                connectLimiter.release(-1);
+                onFailure.call(t);
+                return;
+              }
+              long latency = System.nanoTime() - startNanos;
+              stats.recordSuccess(latency);
+              if (breaker != null) {
+                breaker.recordSuccess(allowed);
+              }
+              connectLimiter.release(latency);
+              onSocket.call(httpSocket);
+            },
+            t -> {
+              connectLimiter.release(-1);
+              if (t instanceof RejectedExecutionException) {
+                // The connect executor rejected the callback, which says nothing about the endpoint
+                onRejected.call(t);
+                return;
+              }
+              stats.recordFailure();
+              if (breaker != null) {
+                breaker.recordFailure(allowed);
+              }
+              onFailure.call(t);
+            }
         );
-        logger.log(Level.FINEST, "Adding socket");
-        addSocket(httpSocket);
-        if (onConnect != null) {
-          logger.log(Level.FINE, "Calling onConnect: {0}", httpSocket);
-          try {
-            onConnect.call(httpSocket);
-          } catch (ThreadDeath td) {
-            throw td;
-          } catch (Throwable t) {
-            logger.log(Level.SEVERE, null, t);
+      } catch (Throwable t) {
+        // Transport could not start, such as its executor rejecting the task after close
+        connectLimiter.release(-1);
+        onRejected.call(t);
+      }
+    };
+    long delay = reserveConnect(endpointUrl);
+    if (delay == 0) {
+      admit(post, onRejected);
+    } else {
+      Runnable delayed = () -> admit(post, onRejected);
+      delayedConnects.add(delayed);
+      try {
+        scheduleConnect(
+            () -> {
+              if (delayedConnects.remove(delayed)) {
+                delayed.run();
+              }
+            },
+            delay,
+            TimeUnit.NANOSECONDS,
+            e -> {
+              if (delayedConnects.remove(delayed)) {
+                onRejected.call(e);
+              }
+            }
+        );
+      } catch (RejectedExecutionException e) {
+        // Client closed
+        if (delayedConnects.remove(delayed)) {
+          failLater(onRejected, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reserves a connect from the rate limits.
+   *
+   * @return  The nanoseconds to delay the connect, {@code 0} to start now
+   */
+  private long reserveConnect(URL endpointUrl) {
+    long delay = (connectBucket == null) ? 0 : connectBucket.reserve();
+    if (endpointConnectRate != 0) {
+      delay = Math.max(delay, getEndpointConnectBucket(endpointUrl.toExternalForm()).reserve());
+    }
+    return delay;
+  }
+
+  /**
+   * Gets the connect rate limit of an endpoint.  Buckets are kept for up to 1024 endpoints.  Once full, idle
+   * buckets are evicted, as they are equivalent to new ones.  When none can be evicted, a new, unretained bucket
+   * is returned, which does not limit that endpoint beyond its burst.
+   */
+  private TokenBucket getEndpointConnectBucket(String endpoint) {
+    TokenBucket bucket = endpointConnectBuckets.get(endpoint);
+    if (bucket == null) {
+      bucket = new TokenBucket(endpointConnectRate, endpointConnectBurst);
+      if (endpointConnectBuckets.size() >= MAX_TRACKED_ENDPOINTS) {
+        endpointConnectBuckets.entrySet().removeIf(entry -> entry.getValue().isIdle());
+      }
+      if (endpointConnectBuckets.size() < MAX_TRACKED_ENDPOINTS) {
+        TokenBucket existing = endpointConnectBuckets.putIfAbsent(endpoint, bucket);
+        if (existing != null) {
+          bucket = existing;
+        }
+      }
+    }
+    return bucket;
+  }
+
+  /**
+   * Starts the handshake when under the limit on connects in flight, otherwise queues it.
+   */
+  private void admit(Runnable post, Callback<? super Throwable> onFailure) {
+    try {
+      connectLimiter.submit(post);
+    } catch (RejectedExecutionException e) {
+      failLater(onFailure, e);
+    }
+  }
+
+  /**
+   * Reports a failure found on the calling thread from the connect executor instead, so the callback is never
+   * called from within {@code connect}, the same as failures of the handshake itself.
+   */
+  private void failLater(Callback<? super Throwable> onFailure, Throwable t) {
+    try {
+      connectExecutor.execute(() -> onFailure.call(t));
+    } catch (RejectedExecutionException e) {
+      // Client closed
+      t.addSuppressed(e);
+      onFailure.call(t);
+    }
+  }
+
+  /**
+   * Warms up the given endpoints before real traffic, with one connection each.
+   *
+   * @see  #prewarm(int, java.net.URL...)
+   */
+  public CompletionStage<Void> prewarm(URL... endpoints) {
+    return prewarm(1, endpoints);
+  }
+
+  /**
+   * Warms up the given endpoints before real traffic, so the first real connect does not pay for name
+   * resolution, TCP and TLS connection setup, class loading, and just-in-time compilation all at once.
+   *
+   * <p>By default, nothing is sent to the server: the host names are resolved, through the
+   * {@linkplain NioTransport#getDnsCache() DNS cache} of a {@link NioTransport}, and a TCP connection is
+   * established and closed.  For HTTPS, a TLS handshake is performed first, with the
+   * {@linkplain UrlConnectionTransport#getSSLSocketFactory() socket factory} of a {@link UrlConnectionTransport}
+   * or else the {@linkplain javax.net.ssl.HttpsURLConnection#getDefaultSSLSocketFactory() default}, so the
+   * session may be resumed by the first real connect.</p>
+   *
+   * <p>With a {@linkplain Builder#prewarmAction(java.lang.String) prewarm action}, the action is posted through
+   * the transport instead, and its response is run through the connect response parser.  With
+   * {@linkplain Builder#prewarmConnect(boolean) prewarm connect}, a full connect is performed, and the resulting
+   * socket is closed immediately.  These exchanges leave connections kept alive by the transport.</p>
+   *
+   * <p>Prewarming bypasses the connect limits and circuit breakers, and is not included in the
+   * {@linkplain #getEndpointStats(java.net.URL) endpoint statistics}.</p>
+   *
+   * @param  connections  The number of concurrent connections per endpoint
+   *
+   * @return  A stage completed once all connections are done, exceptionally with the first failure and any others
+   *          suppressed, or exceptionally with {@link IllegalStateException} when this client is closed
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  public CompletionStage<Void> prewarm(int connections, URL... endpoints) {
+    if (connections < 1) {
+      throw new IllegalArgumentException("connections < 1: " + connections);
+    }
+    CompletableFuture<Void> future = new CompletableFuture<>();
+    if (isClosed()) {
+      future.completeExceptionally(new IllegalStateException("HttpSocketClient is closed"));
+      return future;
+    }
+    int total = connections * endpoints.length;
+    if (total == 0) {
+      future.complete(null);
+      return future;
+    }
+    Prewarm prewarm = new Prewarm(future, total);
+    boolean exchange = prewarmRequest != null || prewarmConnect;
+    for (URL endpoint : endpoints) {
+      URL endpointUrl = internEndpointUrl(endpoint);
+      for (int i = 0; i < connections; i++) {
+        long connectTime = System.currentTimeMillis();
+        try {
+          if (exchange) {
+            transport.post(
+                connectExecutor,
+                endpointUrl,
+                (prewarmRequest == null) ? CONNECT_REQUEST : prewarmRequest,
+                connectTimeout,
+                handshakeReadTimeout,
+                response -> {
+                  try {
+                    prewarmResponse(connectTime, endpointUrl, response);
+                  } catch (Throwable t) {
+                    prewarm.done(t);
+                    return;
+                  }
+                  prewarm.done(null);
+                },
+                prewarm::done
+            );
+          } else {
+            connectExecutor.execute(() -> {
+              try {
+                prewarmSocket(endpointUrl);
+              } catch (Throwable t) {
+                prewarm.done(t);
+                return;
+              }
+              prewarm.done(null);
+            });
           }
-        } else {
-          logger.log(Level.FINE, "No onConnect: {0}", httpSocket);
+        } catch (Throwable t) {
+          prewarm.done(t);
         }
-      } catch (Throwable t0) {
-        if (onError != null) {
-          logger.log(Level.FINE, "Calling onError", t0);
-          try {
-            onError.call(t0);
-          } catch (ThreadDeath td) {
-            t0 = Throwables.addSuppressed(td, t0);
-            assert t0 == td;
-          } catch (Throwable t2) {
-            logger.log(Level.SEVERE, null, t2);
+      }
+    }
+    return future;
+  }
+
+  /**
+   * Resolves the host of an endpoint and establishes a TCP connection, with a TLS handshake for HTTPS, then closes
+   * it without sending any request.
+   */
+  private void prewarmSocket(URL endpointUrl) throws IOException {
+    String host = endpointUrl.getHost();
+    int port = endpointUrl.getPort();
+    if (port == -1) {
+      port = endpointUrl.getDefaultPort();
+    }
+    InetAddress address;
+    if (transport instanceof NioTransport) {
+      address = ((NioTransport) transport).getDnsCache().resolve(host);
+    } else {
+      address = InetAddress.getByName(host);
+    }
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(address, port), connectTimeout);
+      if ("https".equalsIgnoreCase(endpointUrl.getProtocol())) {
+        SSLSocketFactory sslSocketFactory = null;
+        if (transport instanceof UrlConnectionTransport) {
+          sslSocketFactory = ((UrlConnectionTransport) transport).getSSLSocketFactory();
+        }
+        if (sslSocketFactory == null) {
+          sslSocketFactory = HttpsURLConnection.getDefaultSSLSocketFactory();
+        }
+        socket.setSoTimeout(handshakeReadTimeout);
+        // Closes the underlying socket
+        try (SSLSocket sslSocket = (SSLSocket) sslSocketFactory.createSocket(socket, host, port, true)) {
+          sslSocket.startHandshake();
+        }
+      }
+    }
+  }
+
+  /**
+   * Tracks the connections of one {@link #prewarm(int, java.net.URL...)}.
+   */
+  private static final class Prewarm {
+
+    private final CompletableFuture<Void> future;
+    private int remaining;
+    private Throwable failure;
+
+    private Prewarm(CompletableFuture<Void> future, int total) {
+      this.future = future;
+      this.remaining = total;
+    }
+
+    /**
+     * @param  t  The failure or {@code null} on success
+     */
+    private void done(Throwable t) {
+      Throwable result;
+      synchronized (this) {
+        if (t != null) {
+          if (failure == null) {
+            failure = t;
+          } else {
+            failure.addSuppressed(t);
           }
-        } else {
-          logger.log(Level.FINE, "No onError", t0);
         }
-        if (t0 instanceof ThreadDeath) {
-          throw (ThreadDeath) t0;
+        if (--remaining > 0) {
+          return;
+        }
+        result = failure;
+      }
+      if (result == null) {
+        future.complete(null);
+      } else {
+        future.completeExceptionally(result);
+      }
+    }
+  }
+
+  /**
+   * Runs a prewarm response through the connect response parser.
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void prewarmResponse(long connectTime, URL endpointUrl, byte[] response) throws Exception {
+    if (prewarmRequest == null) {
+      newHttpSocket(connectTime, endpointUrl, response).close();
+    } else {
+      // The response of a health check action need not be a connection, only the parsing is exercised
+      try {
+        if (
+            ConnectionResponseParser.parseId(response) == null
+                && response.length > 0
+                && response[0] == '<'
+        ) {
+          parseIdDocument(response);
         }
+      } catch (Throwable t) {
+        logger.log(Level.FINE, "Prewarm response not a connection: " + endpointUrl, t);
+      }
+    }
+  }
+
+  /**
+   * Asynchronously connects.
+   *
+   * <p>The returned stage is completed on the callback executor, or on the connect thread when there is no
+   * callback executor.  Dependent stages should not block; use
+   * {@link #connectAsync(java.lang.String, java.util.concurrent.Executor)} otherwise.</p>
+   */
+  public CompletionStage<HttpSocket> connectAsync(String endpoint) {
+    CompletableFuture<HttpSocket> future = new CompletableFuture<>();
+    connect(endpoint, future::complete, future::completeExceptionally);
+    return future;
+  }
+
+  /**
+   * Asynchronously connects.
+   *
+   * @param  executor  The returned stage is completed through this executor
+   */
+  public CompletionStage<HttpSocket> connectAsync(String endpoint, Executor executor) {
+    CompletableFuture<HttpSocket> future = new CompletableFuture<>();
+    connect(
+        endpoint,
+        httpSocket -> executor.execute(() -> future.complete(httpSocket)),
+        t -> executor.execute(() -> future.completeExceptionally(t))
+    );
+    return future;
+  }
+
+  /**
+   * Connects and keeps the socket connected, retrying failed connects and re-establishing dropped sockets
+   * according to the given policy.
+   *
+   * @return  The handle used to stop reconnecting
+   */
+  public ReconnectingSocket connectReconnecting(String endpoint, ReconnectPolicy policy, ReconnectListener listener) {
+    if (policy == null) {
+      throw new IllegalArgumentException("policy == null");
+    }
+    if (listener == null) {
+      throw new IllegalArgumentException("listener == null");
+    }
+    ReconnectingSocket reconnecting = new ReconnectingSocket(this, endpoint, policy, listener);
+    reconnecting.attempt();
+    return reconnecting;
+  }
+
+  /**
+   * Parses the connect response and adds the new socket.
+   */
+  private HttpSocket newHttpSocket(long connectTime, URL endpointUrl, byte[] response) throws Exception {
+    String idValue = ConnectionResponseParser.parseId(response);
+    if (idValue == null) {
+      // Outside what the fast parser handles
+      idValue = parseIdDocument(response);
+    }
+    Identifier id = Identifier.valueOf(idValue);
+    logger.log(Level.FINEST, "Got id = ", id);
+    HttpSocket httpSocket = new HttpSocket(
+        HttpSocketClient.this,
+        id,
+        connectTime,
+        endpointUrl
+    );
+    logger.log(Level.FINEST, "Adding socket");
+    addSocket(httpSocket);
+    return httpSocket;
+  }
+
+  /**
+   * Runs a callback on the callback executor, or directly when there is none or it rejects the task.
+   */
+  private void dispatch(Runnable callback) {
+    if (callbackExecutor != null) {
+      try {
+        callbackExecutor.execute(callback);
+        return;
+      } catch (RejectedExecutionException e) {
+        logger.log(Level.WARNING, "Callback executor rejected callback, calling directly", e);
       }
-    });
+    }
+    callback.run();
+  }
+
+  /**
+   * Parses the connect response as a full DOM.
+   */
+  private String parseIdDocument(byte[] response) throws Exception {
+    DocumentBuilder builder = documentBuilders.poll();
+    if (builder == null) {
+      builder = builderFactory.newDocumentBuilder();
+    }
+    Element document;
+    try {
+      document = builder.parse(new ByteArrayInputStream(response)).getDocumentElement();
+    } finally {
+      builder.reset();
+      documentBuilders.offer(builder);
+    }
+    if (!ConnectionResponseParser.ROOT_NAME.equals(document.getNodeName())) {
+      throw new IOException("Unexpected root node name: " + document.getNodeName());
+    }
+    return document.getAttribute(ConnectionResponseParser.ID_ATTRIBUTE);
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private static void callOnConnect(Callback<? super HttpSocket> onConnect, HttpSocket httpSocket) {
+    if (onConnect != null) {
+      logger.log(Level.FINE, "Calling onConnect: {0}", httpSocket);
+      try {
+        onConnect.call(httpSocket);
+      } catch (ThreadDeath td) {
+        throw td;
+      } catch (Throwable t) {
+        logger.log(Level.SEVERE, null, t);
+      }
+    } else {
+      logger.log(Level.FINE, "No onConnect: {0}", httpSocket);
+    }
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch", "AssignmentToMethodParameter"})
+  private static void callOnError(Callback<? super Throwable> onError, Throwable t0) {
+    if (onError != null) {
+      logger.log(Level.FINE, "Calling onError", t0);
+      try {
+        onError.call(t0);
+      } catch (ThreadDeath td) {
+        t0 = Throwables.addSuppressed(td, t0);
+        assert t0 == td;
+      } catch (Throwable t2) {
+        logger.log(Level.SEVERE, null, t2);
+      }
+    } else {
+      logger.log(Level.FINE, "No onError", t0);
+    }
+    if (t0 instanceof ThreadDeath) {
+      throw (ThreadDeath) t0;
+    }
   }
 }
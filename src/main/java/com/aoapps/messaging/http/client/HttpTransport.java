@@ -0,0 +1,67 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.concurrent.Callback;
+import java.net.URL;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Performs the HTTP exchanges of {@link HttpSocketClient}.
+ *
+ * <p>Implementations must be thread-safe, as a single transport may be shared by any number of concurrent
+ * connects.</p>
+ *
+ * @see  UrlConnectionTransport
+ * @see  NioTransport
+ */
+public interface HttpTransport {
+
+  /**
+   * Asynchronously performs an HTTP POST of the given request body.
+   *
+   * <p>Exactly one of {@code onResponse} or {@code onError} is called, and it is called through the given
+   * executor.  Any status other than {@code 200} is reported to {@code onError}.  When the executor rejects the
+   * callback, {@code onError} is instead called directly with the {@link RejectedExecutionException}.  When the
+   * executor rejects the exchange before it starts, this method may instead throw the
+   * {@link RejectedExecutionException}, and neither callback is called.</p>
+   *
+   * @param  executor  Used to invoke the callbacks, and for any blocking I/O the implementation may perform
+   * @param  request  The request body, which must not be modified
+   * @param  connectTimeout  The connect timeout in milliseconds, {@code 0} for none
+   * @param  readTimeout  The read timeout in milliseconds, {@code 0} for none
+   * @param  onResponse  Called with the full response body
+   * @param  onError  Called on any failure
+   */
+  void post(
+      Executor executor,
+      URL endpoint,
+      byte[] request,
+      int connectTimeout,
+      int readTimeout,
+      Callback<? super byte[]> onResponse,
+      Callback<? super Throwable> onError
+  );
+}
@@ -0,0 +1,867 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.concurrent.Callback;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking transport built on a single {@link Selector} thread.  No thread is held while waiting on the
+ * network; the executor is only used to invoke the callbacks once a response is complete.
+ *
+ * <p>Connections are kept alive and pooled per route, which is the resolved address and port of the endpoint.
+ * At most {@link #getMaxConnectionsPerRoute()} connections are open to a route at once; further requests wait
+ * for a connection to be released, still subject to their connect timeout.  Idle connections are closed after
+ * {@link #getIdleTimeout()}, and validated before reuse.  A request that fails on a reused connection before
+ * any response is received is retried once on a new connection, since the server may have closed the
+ * connection at the same time.</p>
+ *
+ * <p>Host names are resolved through a {@link DnsCache}, refreshed in the background.  When a host has several
+ * addresses, requests are rotated through them, each address being its own route.</p>
+ *
+ * <p>Only the <code>http</code> protocol is supported.</p>
+ *
+ * <p>The transport must be {@linkplain #close() closed} when no longer needed.  It is not closed by
+ * {@link HttpSocketClient#close()}, since it may be shared by any number of clients.</p>
+ */
+public class NioTransport implements HttpTransport, Closeable {
+
+  private static final Logger logger = Logger.getLogger(NioTransport.class.getName());
+
+  /**
+   * The default maximum number of connections per route.
+   */
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 64;
+
+  /**
+   * The default time, in milliseconds, idle connections are kept.  This is kept below the typical server-side
+   * keep-alive timeout, so connections are usually closed by the client first.
+   */
+  public static final long DEFAULT_IDLE_TIMEOUT = 15L * 1000;
+
+  /**
+   * The maximum size of a response body.
+   */
+  private static final int MAX_RESPONSE_SIZE = 64 * 1024;
+
+  private static final int READ_BUFFER_SIZE = 16 * 1024;
+
+  private final int maxConnectionsPerRoute;
+
+  private final long idleTimeout;
+
+  private final long idleTimeoutNanos;
+
+  private final DnsCache dnsCache;
+
+  /**
+   * Is the DNS cache created, and thus closed, by this transport?
+   */
+  private final boolean ownDnsCache;
+
+  private final Selector selector;
+
+  private final Queue<Exchange> pending = new ConcurrentLinkedQueue<>();
+
+  private volatile boolean closed;
+
+  /**
+   * The routes, only accessed by the selector thread.
+   */
+  private final Map<InetSocketAddress, Route> routes = new HashMap<>();
+
+  /**
+   * The deadlines of exchanges and idle connections, earliest first, only accessed by the selector thread.
+   * Deadlines are extended on every read, so rather than being removed and re-added, an entry is checked when it
+   * comes due: discarded when stale, or rescheduled when its deadline has moved later.
+   */
+  private final PriorityQueue<Timer> timers = new PriorityQueue<>(
+      (t1, t2) -> Long.signum(t1.when - t2.when)
+  );
+
+  /**
+   * The read buffer, only accessed by the selector thread.
+   */
+  private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+
+  private final AtomicLong poolHits = new AtomicLong();
+
+  private final AtomicLong newConnections = new AtomicLong();
+
+  /**
+   * Creates a new transport with the default pool settings and starts its selector thread.
+   *
+   * @see  #DEFAULT_MAX_CONNECTIONS_PER_ROUTE
+   * @see  #DEFAULT_IDLE_TIMEOUT
+   */
+  public NioTransport() throws IOException {
+    this(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_IDLE_TIMEOUT);
+  }
+
+  /**
+   * Creates a new transport with its own {@link DnsCache} and starts its selector thread.
+   *
+   * @param  maxConnectionsPerRoute  The maximum number of open connections per route
+   * @param  idleTimeout  The time, in milliseconds, idle connections are kept, {@code 0} to not keep
+   *                      connections alive
+   */
+  public NioTransport(int maxConnectionsPerRoute, long idleTimeout) throws IOException {
+    this(maxConnectionsPerRoute, idleTimeout, new DnsCache(), true);
+  }
+
+  /**
+   * Creates a new transport and starts its selector thread.
+   *
+   * @param  maxConnectionsPerRoute  The maximum number of open connections per route
+   * @param  idleTimeout  The time, in milliseconds, idle connections are kept, {@code 0} to not keep
+   *                      connections alive
+   * @param  dnsCache  Resolves host names, which may be shared by any number of transports.  It is not closed by
+   *                   {@link #close()}.
+   */
+  public NioTransport(int maxConnectionsPerRoute, long idleTimeout, DnsCache dnsCache) throws IOException {
+    this(maxConnectionsPerRoute, idleTimeout, dnsCache, false);
+  }
+
+  private NioTransport(int maxConnectionsPerRoute, long idleTimeout, DnsCache dnsCache, boolean ownDnsCache)
+      throws IOException {
+    if (maxConnectionsPerRoute < 1) {
+      throw new IllegalArgumentException("maxConnectionsPerRoute < 1: " + maxConnectionsPerRoute);
+    }
+    if (idleTimeout < 0) {
+      throw new IllegalArgumentException("idleTimeout < 0: " + idleTimeout);
+    }
+    if (dnsCache == null) {
+      throw new IllegalArgumentException("dnsCache == null");
+    }
+    this.dnsCache = dnsCache;
+    this.ownDnsCache = ownDnsCache;
+    this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    this.idleTimeout = idleTimeout;
+    this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeout);
+    selector = Selector.open();
+    Thread thread = new Thread(this::run, NioTransport.class.getSimpleName());
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Stops the selector thread and closes all connections.  Any exchanges in progress are failed.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    selector.wakeup();
+    if (ownDnsCache) {
+      dnsCache.close();
+    }
+  }
+
+  /**
+   * Gets the cache resolving host names.  Hosts may be {@linkplain DnsCache#prefetch(java.lang.String) prefetched}
+   * so even the first request does not wait on DNS.
+   */
+  public DnsCache getDnsCache() {
+    return dnsCache;
+  }
+
+  /**
+   * Gets the maximum number of open connections per route.
+   */
+  public int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
+
+  /**
+   * Gets the time, in milliseconds, idle connections are kept.
+   */
+  public long getIdleTimeout() {
+    return idleTimeout;
+  }
+
+  /**
+   * Gets the number of requests sent on a pooled, kept-alive connection.
+   */
+  public long getPoolHits() {
+    return poolHits.get();
+  }
+
+  /**
+   * Gets the number of new connections opened.
+   */
+  public long getNewConnections() {
+    return newConnections.get();
+  }
+
+  @Override
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  public void post(
+      Executor executor,
+      URL endpoint,
+      byte[] request,
+      int connectTimeout,
+      int readTimeout,
+      Callback<? super byte[]> onResponse,
+      Callback<? super Throwable> onError
+  ) {
+    Exchange exchange = new Exchange(executor, request, connectTimeout, readTimeout, onResponse, onError);
+    try {
+      if (closed) {
+        throw new IOException("Transport closed");
+      }
+      exchange.address = resolve(endpoint);
+      exchange.headers = encodeHeaders(endpoint, request.length, idleTimeout > 0);
+    } catch (Throwable t) {
+      exchange.fail(t);
+      return;
+    }
+    pending.add(exchange);
+    if (closed && pending.remove(exchange)) {
+      // Closed after the check above, possibly after the selector thread has already failed all pending
+      exchange.fail(new IOException("Transport closed"));
+      return;
+    }
+    selector.wakeup();
+  }
+
+  /**
+   * Resolves the address of the given endpoint.  This is performed on the calling thread, but only blocks when
+   * the host is not in the {@linkplain #getDnsCache() DNS cache}.
+   */
+  protected InetSocketAddress resolve(URL endpoint) throws IOException {
+    String protocol = endpoint.getProtocol();
+    if (!"http".equalsIgnoreCase(protocol)) {
+      throw new MalformedURLException("Unsupported protocol: " + protocol);
+    }
+    int port = endpoint.getPort();
+    return new InetSocketAddress(
+        dnsCache.resolve(endpoint.getHost()),
+        port == -1 ? endpoint.getDefaultPort() : port
+    );
+  }
+
+  private static byte[] encodeHeaders(URL endpoint, int contentLength, boolean keepAlive) {
+    String file = endpoint.getFile();
+    int port = endpoint.getPort();
+    StringBuilder headers = new StringBuilder();
+    headers.append("POST ").append(file.isEmpty() ? "/" : file).append(" HTTP/1.1\r\n");
+    headers.append("Host: ").append(endpoint.getHost());
+    if (port != -1) {
+      headers.append(':').append(port);
+    }
+    headers.append("\r\n");
+    headers.append("Content-Type: application/x-www-form-urlencoded\r\n");
+    headers.append("Content-Length: ").append(contentLength).append("\r\n");
+    if (!keepAlive) {
+      headers.append("Connection: close\r\n");
+    }
+    headers.append("\r\n");
+    return headers.toString().getBytes(StandardCharsets.ISO_8859_1);
+  }
+
+  /**
+   * The connections to one address and port, only accessed by the selector thread.
+   */
+  private static final class Route {
+
+    private final InetSocketAddress address;
+
+    /**
+     * The idle connections, most recently used last.
+     */
+    private final Deque<Connection> idle = new ArrayDeque<>();
+
+    /**
+     * The exchanges waiting for a connection.
+     */
+    private final Queue<Exchange> waiting = new ArrayDeque<>();
+
+    /**
+     * The number of open connections, both idle and active.
+     */
+    private int connections;
+
+    private Route(InetSocketAddress address) {
+      this.address = address;
+    }
+  }
+
+  /**
+   * An exchange or connection with a deadline, only accessed by the selector thread.
+   */
+  private abstract static class Timed {
+
+    /**
+     * The deadline of the live entry in {@link NioTransport#timers}, only meaningful when {@link #timerScheduled}.
+     */
+    long timerWhen;
+
+    /**
+     * Is there a live entry in {@link NioTransport#timers}?
+     */
+    boolean timerScheduled;
+  }
+
+  /**
+   * An entry in {@link NioTransport#timers}.  Entries are immutable; a deadline that changes leaves its entry stale, to be
+   * discarded or rescheduled when it comes due.
+   */
+  private static final class Timer {
+
+    private final long when;
+    private final Timed owner;
+
+    private Timer(long when, Timed owner) {
+      this.when = when;
+      this.owner = owner;
+    }
+
+    private boolean isStale() {
+      return !owner.timerScheduled || owner.timerWhen != when;
+    }
+  }
+
+  /**
+   * One connection, only accessed by the selector thread.
+   */
+  private static final class Connection extends Timed {
+
+    private final Route route;
+    private final SocketChannel channel;
+    private SelectionKey key;
+
+    /**
+     * The exchange in progress or {@code null} when idle.
+     */
+    private Exchange exchange;
+
+    /**
+     * The {@link System#nanoTime()} this connection became idle.
+     */
+    private long idleSince;
+
+    /**
+     * Has this connection completed an exchange?
+     */
+    private boolean reused;
+
+    private boolean closed;
+
+    private Connection(Route route, SocketChannel channel) {
+      this.route = route;
+      this.channel = channel;
+    }
+
+    private void close() {
+      if (!closed) {
+        closed = true;
+        route.connections--;
+        if (exchange == null) {
+          route.idle.remove(this);
+        }
+        if (key != null) {
+          key.cancel();
+        }
+        try {
+          channel.close();
+        } catch (IOException e) {
+          logger.log(Level.FINE, null, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * The state of one request/response.
+   */
+  private static final class Exchange extends Timed {
+
+    private final Executor executor;
+    private final byte[] request;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final Callback<? super byte[]> onResponse;
+    private final Callback<? super Throwable> onError;
+
+    private InetSocketAddress address;
+    private byte[] headers;
+
+    /**
+     * The route once acquired.
+     */
+    private Route route;
+
+    /**
+     * The connection most recently assigned, which may since have moved on to another exchange.
+     */
+    private Connection conn;
+
+    /**
+     * The buffers remaining to write, or {@code null} once written.
+     */
+    private ByteBuffer[] buffers;
+    private HttpResponseParser parser;
+
+    /**
+     * The {@link System#nanoTime()} this exchange times-out, only meaningful when {@link #hasDeadline}.
+     */
+    private long deadline;
+    private boolean hasDeadline;
+    private boolean retried;
+    private boolean finished;
+
+    private Exchange(
+        Executor executor,
+        byte[] request,
+        int connectTimeout,
+        int readTimeout,
+        Callback<? super byte[]> onResponse,
+        Callback<? super Throwable> onError
+    ) {
+      this.executor = executor;
+      this.request = request;
+      this.connectTimeout = connectTimeout;
+      this.readTimeout = readTimeout;
+      this.onResponse = onResponse;
+      this.onError = onError;
+    }
+
+    /**
+     * Resets the request and response state for a new attempt.
+     */
+    private void start() {
+      buffers = new ByteBuffer[]{
+          ByteBuffer.wrap(headers),
+          ByteBuffer.wrap(request).asReadOnlyBuffer()
+      };
+      parser = new HttpResponseParser(MAX_RESPONSE_SIZE);
+    }
+
+    private boolean isExpired(long now) {
+      return hasDeadline && now - deadline >= 0;
+    }
+
+    /**
+     * Invokes a callback through the executor.  When the executor rejects it, such as once shut down or when
+     * saturated, {@code onError} is called with the rejection on the selector thread instead, so the exchange
+     * is still completed.
+     */
+    @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+    private void dispatch(Runnable task) {
+      try {
+        executor.execute(task);
+      } catch (Throwable t) {
+        try {
+          onError.call(t);
+        } catch (ThreadDeath td) {
+          throw td;
+        } catch (Throwable t2) {
+          logger.log(Level.SEVERE, null, t2);
+        }
+      }
+    }
+
+    private void fail(Throwable t) {
+      if (!finished) {
+        finished = true;
+        dispatch(() -> onError.call(t));
+      }
+    }
+
+    private void complete() {
+      finished = true;
+      int status = parser.getStatus();
+      logger.log(Level.FINEST, "Got connection with response: {0}", status);
+      if (status != 200) {
+        dispatch(() -> onError.call(new IOException("Unexpect response code: " + status)));
+      } else {
+        byte[] body = parser.getBody();
+        dispatch(() -> onResponse.call(body));
+      }
+    }
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void run() {
+    try {
+      while (!closed) {
+        try {
+          selector.select(getSelectTimeout());
+          long now = System.nanoTime();
+          // Start new exchanges
+          Exchange exchange;
+          while ((exchange = pending.poll()) != null) {
+            setTimeout(exchange, now, exchange.connectTimeout);
+            acquire(routes.computeIfAbsent(exchange.address, Route::new), exchange, now);
+          }
+          // Perform I/O
+          Iterator<SelectionKey> selected = selector.selectedKeys().iterator();
+          while (selected.hasNext()) {
+            SelectionKey key = selected.next();
+            selected.remove();
+            process((Connection) key.attachment(), now);
+          }
+          expire(now);
+        } catch (ClosedSelectorException e) {
+          throw e;
+        } catch (ThreadDeath td) {
+          throw td;
+        } catch (Throwable t) {
+          logger.log(Level.SEVERE, null, t);
+        }
+      }
+    } finally {
+      IOException closedException = new IOException("Transport closed");
+      Exchange exchange;
+      while ((exchange = pending.poll()) != null) {
+        exchange.fail(closedException);
+      }
+      for (Route route : routes.values()) {
+        while ((exchange = route.waiting.poll()) != null) {
+          exchange.fail(closedException);
+        }
+      }
+      try {
+        for (SelectionKey key : selector.keys()) {
+          Connection conn = (Connection) key.attachment();
+          if (conn.exchange != null) {
+            conn.exchange.fail(closedException);
+          }
+          conn.close();
+        }
+        selector.close();
+      } catch (ClosedSelectorException | IOException e) {
+        logger.log(Level.WARNING, null, e);
+      }
+      routes.clear();
+    }
+  }
+
+  /**
+   * Sets the deadline of an exchange, {@code 0} for none.
+   */
+  private void setTimeout(Exchange exchange, long now, int timeout) {
+    exchange.hasDeadline = timeout > 0;
+    if (exchange.hasDeadline) {
+      exchange.deadline = now + TimeUnit.MILLISECONDS.toNanos(timeout);
+      schedule(exchange, exchange.deadline);
+    }
+  }
+
+  /**
+   * Ensures there is a live entry in {@link NioTransport#timers} due no later than the given time.
+   */
+  private void schedule(Timed owner, long when) {
+    if (!owner.timerScheduled || when - owner.timerWhen < 0) {
+      owner.timerScheduled = true;
+      owner.timerWhen = when;
+      timers.add(new Timer(when, owner));
+    }
+  }
+
+  /**
+   * Gets the select timeout until the nearest deadline, {@code 0} for none.
+   */
+  private long getSelectTimeout() {
+    Timer timer;
+    while ((timer = timers.peek()) != null && timer.isStale()) {
+      timers.remove();
+    }
+    if (timer == null) {
+      return 0;
+    }
+    // Round up, and never zero since that means no timeout
+    return Math.max(1, TimeUnit.NANOSECONDS.toMillis(timer.when - System.nanoTime()) + 1);
+  }
+
+  /**
+   * Closes idle connections past their idle timeout and fails timed-out exchanges.
+   */
+  private void expire(long now) {
+    Timer timer;
+    while ((timer = timers.peek()) != null && now - timer.when >= 0) {
+      timers.remove();
+      if (!timer.isStale()) {
+        Timed owner = timer.owner;
+        owner.timerScheduled = false;
+        if (owner instanceof Exchange) {
+          expire((Exchange) owner, now);
+        } else {
+          expire((Connection) owner, now);
+        }
+      }
+    }
+  }
+
+  private void expire(Exchange exchange, long now) {
+    if (exchange.finished || !exchange.hasDeadline) {
+      return;
+    }
+    if (!exchange.isExpired(now)) {
+      schedule(exchange, exchange.deadline);
+      return;
+    }
+    Connection conn = exchange.conn;
+    if (conn != null && !conn.closed && conn.exchange == exchange) {
+      boolean connecting = conn.channel.isConnectionPending();
+      conn.close();
+      exchange.fail(new SocketTimeoutException(connecting ? "connect timed out" : "Read timed out"));
+      serveWaiting(conn.route, now);
+    } else {
+      Route route = exchange.route;
+      route.waiting.remove(exchange);
+      exchange.fail(new SocketTimeoutException("connect timed out waiting for a connection"));
+      removeIfUnused(route);
+    }
+  }
+
+  private void expire(Connection conn, long now) {
+    if (conn.closed || conn.exchange != null) {
+      return;
+    }
+    long when = conn.idleSince + idleTimeoutNanos;
+    if (now - when >= 0) {
+      conn.close();
+      serveWaiting(conn.route, now);
+    } else {
+      schedule(conn, when);
+    }
+  }
+
+  /**
+   * Forgets a route once it has neither connections nor waiting exchanges.
+   */
+  private void removeIfUnused(Route route) {
+    if (route.connections == 0 && route.waiting.isEmpty()) {
+      routes.remove(route.address);
+    }
+  }
+
+  /**
+   * Assigns an exchange to a pooled connection, a new connection, or the waiting queue.
+   */
+  private void acquire(Route route, Exchange exchange, long now) {
+    exchange.route = route;
+    Connection conn;
+    while ((conn = route.idle.pollLast()) != null) {
+      if (isValid(conn)) {
+        poolHits.incrementAndGet();
+        assign(conn, exchange, now);
+        return;
+      }
+      conn.close();
+    }
+    if (route.connections < maxConnectionsPerRoute) {
+      open(route, exchange, now);
+    } else {
+      route.waiting.add(exchange);
+    }
+  }
+
+  /**
+   * Checks that an idle connection has neither been closed by the server nor received unexpected data.
+   */
+  private boolean isValid(Connection conn) {
+    if (conn.closed || !conn.key.isValid() || !conn.channel.isOpen()) {
+      return false;
+    }
+    try {
+      readBuffer.clear();
+      return conn.channel.read(readBuffer) == 0;
+    } catch (IOException e) {
+      logger.log(Level.FINE, null, e);
+      return false;
+    }
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void open(Route route, Exchange exchange, long now) {
+    SocketChannel channel = null;
+    Connection conn = null;
+    try {
+      channel = SocketChannel.open();
+      route.connections++;
+      conn = new Connection(route, channel);
+      conn.exchange = exchange;
+      exchange.conn = conn;
+      newConnections.incrementAndGet();
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      exchange.start();
+      if (channel.connect(exchange.address)) {
+        setTimeout(exchange, now, exchange.readTimeout);
+        conn.key = channel.register(selector, SelectionKey.OP_WRITE, conn);
+      } else {
+        conn.key = channel.register(selector, SelectionKey.OP_CONNECT, conn);
+      }
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      if (conn != null) {
+        conn.close();
+      } else if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          logger.log(Level.FINE, null, e);
+        }
+      }
+      exchange.fail(t);
+    }
+  }
+
+  private void assign(Connection conn, Exchange exchange, long now) {
+    conn.exchange = exchange;
+    exchange.conn = conn;
+    exchange.start();
+    setTimeout(exchange, now, exchange.readTimeout);
+    conn.key.interestOps(SelectionKey.OP_WRITE);
+  }
+
+  /**
+   * Returns a connection to the pool after a successful exchange.
+   */
+  private void release(Connection conn, long now) {
+    conn.exchange = null;
+    conn.reused = true;
+    Route route = conn.route;
+    Exchange next = route.waiting.poll();
+    if (next != null) {
+      poolHits.incrementAndGet();
+      assign(conn, next, now);
+    } else {
+      conn.idleSince = now;
+      schedule(conn, now + idleTimeoutNanos);
+      // Watch for the server closing the connection
+      conn.key.interestOps(SelectionKey.OP_READ);
+      route.idle.addLast(conn);
+    }
+  }
+
+  /**
+   * Opens new connections for waiting exchanges while under the per-route limit.
+   */
+  private void serveWaiting(Route route, long now) {
+    Exchange exchange;
+    while (route.connections < maxConnectionsPerRoute && (exchange = route.waiting.poll()) != null) {
+      open(route, exchange, now);
+    }
+    removeIfUnused(route);
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private void process(Connection conn, long now) {
+    if (conn.closed) {
+      return;
+    }
+    SelectionKey key = conn.key;
+    Exchange exchange = conn.exchange;
+    try {
+      SocketChannel channel = conn.channel;
+      if (exchange == null) {
+        // Idle connection closed by the server or sent unexpected data
+        conn.close();
+        serveWaiting(conn.route, now);
+      } else if (key.isConnectable()) {
+        if (channel.finishConnect()) {
+          setTimeout(exchange, now, exchange.readTimeout);
+          key.interestOps(SelectionKey.OP_WRITE);
+        }
+      } else if (key.isWritable()) {
+        channel.write(exchange.buffers);
+        if (!exchange.buffers[exchange.buffers.length - 1].hasRemaining()) {
+          exchange.buffers = null;
+          key.interestOps(SelectionKey.OP_READ);
+        }
+      } else if (key.isReadable()) {
+        readBuffer.clear();
+        int count = channel.read(readBuffer);
+        boolean done;
+        if (count == -1) {
+          if (conn.reused && !exchange.parser.isStarted()) {
+            throw new IOException("Connection closed by server before response");
+          }
+          done = exchange.parser.endOfStream();
+        } else {
+          readBuffer.flip();
+          done = exchange.parser.feed(readBuffer);
+          setTimeout(exchange, now, exchange.readTimeout);
+        }
+        if (done) {
+          exchange.complete();
+          if (count == -1 || readBuffer.hasRemaining() || exchange.parser.isConnectionClose() || idleTimeout == 0) {
+            conn.close();
+            serveWaiting(conn.route, now);
+          } else {
+            release(conn, now);
+          }
+        }
+      }
+    } catch (ThreadDeath td) {
+      throw td;
+    } catch (Throwable t) {
+      conn.close();
+      if (exchange == null) {
+        logger.log(Level.FINE, null, t);
+      } else if (conn.reused && !exchange.retried && !exchange.parser.isStarted()) {
+        // The server may have closed the kept-alive connection while sending the request
+        logger.log(Level.FINE, "Retrying on new connection", t);
+        exchange.retried = true;
+        Route route = conn.route;
+        if (route.connections < maxConnectionsPerRoute) {
+          open(route, exchange, now);
+        } else {
+          route.waiting.add(exchange);
+        }
+      } else {
+        exchange.fail(t);
+        serveWaiting(conn.route, now);
+      }
+    }
+  }
+}
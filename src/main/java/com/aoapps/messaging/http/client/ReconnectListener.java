@@ -0,0 +1,61 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.messaging.http.HttpSocket;
+
+/**
+ * Receives the events of a {@link ReconnectingSocket}.
+ */
+public interface ReconnectListener {
+
+  /**
+   * Called with each new socket, both on the initial connect and on every reconnect.  As with
+   * {@link HttpSocketClient#connect(java.lang.String, com.aoapps.concurrent.Callback, com.aoapps.concurrent.Callback)},
+   * the socket has not been started, so listeners may be added before starting it.
+   */
+  void onConnect(HttpSocket socket);
+
+  /**
+   * Called when the current socket has been closed and a reconnect will be attempted.
+   */
+  default void onDrop(HttpSocket socket) {
+    // Nothing by default
+  }
+
+  /**
+   * Called when an attempt has failed and another is scheduled.
+   *
+   * @param  failedAttempts  The number of consecutive failed attempts
+   * @param  delay  The delay in milliseconds before the next attempt
+   */
+  default void onRetry(int failedAttempts, Throwable cause, long delay) {
+    // Nothing by default
+  }
+
+  /**
+   * Called when the retry budget of the {@link ReconnectPolicy} has been used up.  No more attempts are made.
+   */
+  void onGiveUp(Throwable cause);
+}
@@ -0,0 +1,120 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.util.Random;
+
+/**
+ * The backoff and retry budget of a {@link ReconnectingSocket}.
+ *
+ * <p>Delays use decorrelated jitter: the first retry after a failure or drop waits a uniformly random time in
+ * <code>[0, baseDelay)</code>, and each following retry waits a random time between <code>baseDelay</code> and
+ * three times the previous delay, capped at <code>maxDelay</code>.  This recovers quickly after a server restart
+ * while spreading the reconnects of many clients, so they do not retry in lock step.</p>
+ *
+ * <p>Instances are immutable.</p>
+ */
+public final class ReconnectPolicy {
+
+  /**
+   * The default policy: a base delay of one second, a maximum delay of one minute, and unlimited attempts.
+   */
+  public static final ReconnectPolicy DEFAULT = new ReconnectPolicy(1000, 60L * 1000, 0);
+
+  private final long baseDelay;
+  private final long maxDelay;
+  private final int maxAttempts;
+
+  /**
+   * Creates a new policy.
+   *
+   * @param  baseDelay  The base delay in milliseconds
+   * @param  maxDelay  The maximum delay in milliseconds
+   * @param  maxAttempts  The retry budget: the maximum number of consecutive failed attempts before giving up,
+   *                      {@code 0} for unlimited
+   */
+  public ReconnectPolicy(long baseDelay, long maxDelay, int maxAttempts) {
+    if (baseDelay < 1) {
+      throw new IllegalArgumentException("baseDelay < 1: " + baseDelay);
+    }
+    if (maxDelay < baseDelay) {
+      throw new IllegalArgumentException("maxDelay < baseDelay: " + maxDelay + " < " + baseDelay);
+    }
+    if (maxAttempts < 0) {
+      throw new IllegalArgumentException("maxAttempts < 0: " + maxAttempts);
+    }
+    this.baseDelay = baseDelay;
+    this.maxDelay = maxDelay;
+    this.maxAttempts = maxAttempts;
+  }
+
+  @Override
+  public String toString() {
+    return ReconnectPolicy.class.getSimpleName()
+        + "(baseDelay=" + baseDelay
+        + ", maxDelay=" + maxDelay
+        + ", maxAttempts=" + maxAttempts
+        + ')';
+  }
+
+  public long getBaseDelay() {
+    return baseDelay;
+  }
+
+  public long getMaxDelay() {
+    return maxDelay;
+  }
+
+  /**
+   * Gets the maximum number of consecutive failed attempts before giving up, {@code 0} for unlimited.
+   */
+  public int getMaxAttempts() {
+    return maxAttempts;
+  }
+
+  /**
+   * Has the retry budget been used up?
+   *
+   * @param  failedAttempts  The number of consecutive failed attempts
+   */
+  boolean isExhausted(int failedAttempts) {
+    return maxAttempts != 0 && failedAttempts >= maxAttempts;
+  }
+
+  /**
+   * Gets the next delay.
+   *
+   * @param  previousDelay  The previous delay or {@code 0} for the first retry
+   */
+  long nextDelay(long previousDelay, Random random) {
+    if (previousDelay <= 0) {
+      return (long) (random.nextDouble() * baseDelay);
+    }
+    long upper = Math.min(maxDelay, previousDelay * 3);
+    if (upper <= baseDelay) {
+      return baseDelay;
+    }
+    return Math.min(maxDelay, baseDelay + (long) (random.nextDouble() * (upper - baseDelay)));
+  }
+}
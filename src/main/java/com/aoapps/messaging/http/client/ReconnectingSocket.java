@@ -0,0 +1,238 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.messaging.Message;
+import com.aoapps.messaging.Socket;
+import com.aoapps.messaging.SocketListener;
+import com.aoapps.messaging.http.HttpSocket;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a socket connected to an endpoint, retrying failed connects and re-establishing dropped sockets
+ * according to a {@link ReconnectPolicy}.
+ *
+ * <p>Reconnecting stops when this is {@linkplain #close() closed}, when the client is closed, or when the retry
+ * budget is used up.</p>
+ *
+ * @see  HttpSocketClient#connectReconnecting(java.lang.String, com.aoapps.messaging.http.client.ReconnectPolicy, com.aoapps.messaging.http.client.ReconnectListener)
+ */
+public class ReconnectingSocket implements Closeable {
+
+  private static final Logger logger = Logger.getLogger(ReconnectingSocket.class.getName());
+
+  private final HttpSocketClient client;
+  private final String endpoint;
+  private final ReconnectPolicy policy;
+  private final ReconnectListener listener;
+
+  private final Object lock = new Object();
+  private boolean closed;
+  private HttpSocket socket;
+  private int failedAttempts;
+  private long delay;
+
+  /**
+   * Detects when the current socket is closed.
+   */
+  private final SocketListener closeListener = new SocketListener() {
+    @Override
+    public void onMessages(Socket socket, List<? extends Message> messages) {
+      // Nothing to do
+    }
+
+    @Override
+    public void onError(Socket socket, Throwable t) {
+      // Nothing to do
+    }
+
+    @Override
+    public void onRemoteSocketAddressChange(
+        Socket socket,
+        SocketAddress oldRemoteSocketAddress,
+        SocketAddress newRemoteSocketAddress
+    ) {
+      // Nothing to do
+    }
+
+    @Override
+    public void onClose(Socket socket) {
+      onDrop((HttpSocket) socket);
+    }
+  };
+
+  ReconnectingSocket(HttpSocketClient client, String endpoint, ReconnectPolicy policy, ReconnectListener listener) {
+    this.client = client;
+    this.endpoint = endpoint;
+    this.policy = policy;
+    this.listener = listener;
+  }
+
+  @Override
+  public String toString() {
+    return ReconnectingSocket.class.getSimpleName() + '(' + endpoint + ')';
+  }
+
+  public String getEndpoint() {
+    return endpoint;
+  }
+
+  public ReconnectPolicy getPolicy() {
+    return policy;
+  }
+
+  /**
+   * Gets the current socket or {@code null} while reconnecting.
+   */
+  public HttpSocket getSocket() {
+    synchronized (lock) {
+      return socket;
+    }
+  }
+
+  /**
+   * Stops reconnecting and closes the current socket, if any.
+   */
+  @Override
+  public void close() throws IOException {
+    HttpSocket s;
+    synchronized (lock) {
+      closed = true;
+      s = socket;
+      socket = null;
+    }
+    if (s != null) {
+      s.close();
+    }
+  }
+
+  public boolean isClosed() {
+    synchronized (lock) {
+      return closed;
+    }
+  }
+
+  /**
+   * Makes one connect attempt.
+   */
+  void attempt() {
+    synchronized (lock) {
+      if (closed || client.isClosed()) {
+        return;
+      }
+    }
+    client.connect(endpoint, this::onConnect, this::onFailure);
+  }
+
+  private void onConnect(HttpSocket newSocket) {
+    boolean close;
+    synchronized (lock) {
+      close = closed;
+      if (!close) {
+        socket = newSocket;
+        failedAttempts = 0;
+        delay = 0;
+      }
+    }
+    if (close) {
+      try {
+        newSocket.close();
+      } catch (IOException e) {
+        logger.log(Level.FINE, null, e);
+      }
+      return;
+    }
+    newSocket.addSocketListener(closeListener, false);
+    listener.onConnect(newSocket);
+  }
+
+  private void onDrop(HttpSocket droppedSocket) {
+    synchronized (lock) {
+      if (closed || socket != droppedSocket) {
+        return;
+      }
+      socket = null;
+    }
+    if (!client.isClosed()) {
+      listener.onDrop(droppedSocket);
+      scheduleRetry(null);
+    }
+  }
+
+  private void onFailure(Throwable t) {
+    int failed;
+    synchronized (lock) {
+      if (closed) {
+        return;
+      }
+      failed = ++failedAttempts;
+    }
+    if (client.isClosed()) {
+      return;
+    }
+    if (policy.isExhausted(failed)) {
+      listener.onGiveUp(t);
+    } else {
+      scheduleRetry(t);
+    }
+  }
+
+  /**
+   * Schedules the next attempt.
+   *
+   * @param  cause  The cause of the failed attempt or {@code null} when the socket was dropped
+   */
+  private void scheduleRetry(Throwable cause) {
+    long nextDelay;
+    int failed;
+    synchronized (lock) {
+      nextDelay = policy.nextDelay(delay, ThreadLocalRandom.current());
+      delay = nextDelay;
+      failed = failedAttempts;
+    }
+    if (cause != null) {
+      listener.onRetry(failed, cause, nextDelay);
+    }
+    try {
+      client.scheduleConnect(
+          this::attempt,
+          nextDelay,
+          TimeUnit.MILLISECONDS,
+          // Client closed
+          e -> logger.log(Level.FINE, null, e)
+      );
+    } catch (RejectedExecutionException e) {
+      // Client closed
+      logger.log(Level.FINE, null, e);
+    }
+  }
+}
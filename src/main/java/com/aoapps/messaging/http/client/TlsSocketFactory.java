@@ -0,0 +1,180 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Creates TLS sockets from a dedicated {@link SSLContext}, whose client session cache is sized for session
+ * resumption, and counts resumed versus full handshakes.
+ *
+ * <p>A handshake is counted as resumed when it completes with a session created before the socket, which is how
+ * a session taken from the client session cache appears.  Sockets are wrapped to count their handshake on the
+ * thread that performs it, once the session is obtained, rather than through a
+ * {@link javax.net.ssl.HandshakeCompletedListener}, which would start a new thread for every handshake.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @see  UrlConnectionTransport#UrlConnectionTransport(javax.net.ssl.SSLSocketFactory)
+ * @see  HttpSocketClient.Builder#sslSocketFactory(javax.net.ssl.SSLSocketFactory)
+ */
+public class TlsSocketFactory extends SSLSocketFactory {
+
+  /**
+   * The default maximum number of sessions in the client session cache.
+   */
+  public static final int DEFAULT_SESSION_CACHE_SIZE = 1024;
+
+  /**
+   * The default time, in seconds, sessions are kept for resumption.
+   */
+  public static final int DEFAULT_SESSION_TIMEOUT = 24 * 60 * 60;
+
+  private final SSLContext sslContext;
+
+  private final SSLSocketFactory delegate;
+
+  private final AtomicLong fullHandshakes = new AtomicLong();
+
+  private final AtomicLong resumedHandshakes = new AtomicLong();
+
+  /**
+   * Creates a new factory with the default session cache settings.
+   *
+   * @see  #DEFAULT_SESSION_CACHE_SIZE
+   * @see  #DEFAULT_SESSION_TIMEOUT
+   */
+  public TlsSocketFactory(SSLContext sslContext) {
+    this(sslContext, DEFAULT_SESSION_CACHE_SIZE, DEFAULT_SESSION_TIMEOUT);
+  }
+
+  /**
+   * Creates a new factory, configuring the client session cache of the given context.  The context should be
+   * dedicated to this factory, since its session cache settings are changed.
+   *
+   * @param  sessionCacheSize  The maximum number of sessions in the client session cache, {@code 0} for unlimited
+   * @param  sessionTimeout  The time, in seconds, sessions are kept for resumption, {@code 0} for unlimited
+   */
+  public TlsSocketFactory(SSLContext sslContext, int sessionCacheSize, int sessionTimeout) {
+    if (sessionCacheSize < 0) {
+      throw new IllegalArgumentException("sessionCacheSize < 0: " + sessionCacheSize);
+    }
+    if (sessionTimeout < 0) {
+      throw new IllegalArgumentException("sessionTimeout < 0: " + sessionTimeout);
+    }
+    this.sslContext = sslContext;
+    SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+    if (sessionContext != null) {
+      sessionContext.setSessionCacheSize(sessionCacheSize);
+      sessionContext.setSessionTimeout(sessionTimeout);
+    }
+    this.delegate = sslContext.getSocketFactory();
+  }
+
+  public SSLContext getSSLContext() {
+    return sslContext;
+  }
+
+  /**
+   * Gets the number of full handshakes, each establishing a new session.
+   */
+  public long getFullHandshakes() {
+    return fullHandshakes.get();
+  }
+
+  /**
+   * Gets the number of abbreviated handshakes, each resuming a cached session.
+   */
+  public long getResumedHandshakes() {
+    return resumedHandshakes.get();
+  }
+
+  @Override
+  public String[] getDefaultCipherSuites() {
+    return delegate.getDefaultCipherSuites();
+  }
+
+  @Override
+  public String[] getSupportedCipherSuites() {
+    return delegate.getSupportedCipherSuites();
+  }
+
+  @Override
+  public Socket createSocket() throws IOException {
+    return track(delegate.createSocket());
+  }
+
+  @Override
+  public Socket createSocket(Socket s, String host, int port, boolean autoClose) throws IOException {
+    return track(delegate.createSocket(s, host, port, autoClose));
+  }
+
+  @Override
+  public Socket createSocket(Socket s, InputStream consumed, boolean autoClose) throws IOException {
+    return track(delegate.createSocket(s, consumed, autoClose));
+  }
+
+  @Override
+  public Socket createSocket(String host, int port) throws IOException {
+    return track(delegate.createSocket(host, port));
+  }
+
+  @Override
+  public Socket createSocket(String host, int port, InetAddress localHost, int localPort) throws IOException {
+    return track(delegate.createSocket(host, port, localHost, localPort));
+  }
+
+  @Override
+  public Socket createSocket(InetAddress host, int port) throws IOException {
+    return track(delegate.createSocket(host, port));
+  }
+
+  @Override
+  public Socket createSocket(InetAddress address, int port, InetAddress localAddress, int localPort) throws IOException {
+    return track(delegate.createSocket(address, port, localAddress, localPort));
+  }
+
+  private Socket track(Socket socket) {
+    if (socket instanceof SSLSocket) {
+      return HandshakeCountingSockets.newInstance(this, (SSLSocket) socket);
+    }
+    return socket;
+  }
+
+  void countHandshake(boolean resumed) {
+    if (resumed) {
+      resumedHandshakes.incrementAndGet();
+    } else {
+      fullHandshakes.incrementAndGet();
+    }
+  }
+}
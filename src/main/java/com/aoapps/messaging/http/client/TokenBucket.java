@@ -0,0 +1,145 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, allowing a sustained rate of permits with bursts up to a given size.
+ *
+ * <p>The bucket is kept as a single theoretical arrival time, updated by compare-and-set, so acquiring a permit
+ * never blocks or takes a lock.  Rather than sleeping, callers are told how long to delay, so they may schedule a
+ * continuation instead of holding a thread.</p>
+ *
+ * <p>Besides limiting the connects of a {@link HttpSocketClient}, this may be used by applications to pace the
+ * messages they send through a socket.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @see  HttpSocketClient.Builder#connectRate(double, int)
+ * @see  HttpSocketClient.Builder#endpointConnectRate(double, int)
+ */
+public final class TokenBucket {
+
+  private final double permitsPerSecond;
+  private final int burst;
+
+  /**
+   * The nanoseconds between permits at the sustained rate.
+   */
+  private final long interval;
+
+  /**
+   * How far the theoretical arrival time may run ahead of now without delay, allowing the burst.
+   */
+  private final long tolerance;
+
+  /**
+   * The theoretical arrival time of the next permit, in {@link System#nanoTime()}.
+   */
+  private final AtomicLong tat;
+
+  /**
+   * Creates a new bucket, initially full.
+   *
+   * @param  permitsPerSecond  The sustained rate
+   * @param  burst  The maximum number of permits acquired at once without delay
+   */
+  public TokenBucket(double permitsPerSecond, int burst) {
+    checkArguments(permitsPerSecond, burst);
+    this.permitsPerSecond = permitsPerSecond;
+    this.burst = burst;
+    this.interval = Math.max(1, Math.round(1_000_000_000 / permitsPerSecond));
+    this.tolerance = interval * (burst - 1);
+    this.tat = new AtomicLong(System.nanoTime());
+  }
+
+  static void checkArguments(double permitsPerSecond, int burst) {
+    if (!(permitsPerSecond > 0) || Double.isInfinite(permitsPerSecond)) {
+      throw new IllegalArgumentException("permitsPerSecond out of range: " + permitsPerSecond);
+    }
+    if (burst < 1) {
+      throw new IllegalArgumentException("burst < 1: " + burst);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return TokenBucket.class.getSimpleName()
+        + "(permitsPerSecond=" + permitsPerSecond
+        + ", burst=" + burst
+        + ')';
+  }
+
+  public double getPermitsPerSecond() {
+    return permitsPerSecond;
+  }
+
+  public int getBurst() {
+    return burst;
+  }
+
+  /**
+   * Reserves a permit, which is always granted, but possibly in the future.
+   *
+   * @return  The nanoseconds the caller must wait before using the permit, {@code 0} when available now
+   */
+  public long reserve() {
+    while (true) {
+      long now = System.nanoTime();
+      long current = tat.get();
+      // An idle bucket does not accumulate more than the burst
+      long start = (current - now < 0) ? now : current;
+      if (tat.compareAndSet(current, start + interval)) {
+        return Math.max(0, start - now - tolerance);
+      }
+    }
+  }
+
+  /**
+   * Is this bucket full, thus indistinguishable from a new bucket?
+   */
+  boolean isIdle() {
+    return tat.get() - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Acquires a permit only when available now.
+   *
+   * @return  {@code true} when acquired, {@code false} when no permit is available and none was reserved
+   */
+  public boolean tryAcquire() {
+    while (true) {
+      long now = System.nanoTime();
+      long current = tat.get();
+      long start = (current - now < 0) ? now : current;
+      if (start - now > tolerance) {
+        return false;
+      }
+      if (tat.compareAndSet(current, start + interval)) {
+        return true;
+      }
+    }
+  }
+}
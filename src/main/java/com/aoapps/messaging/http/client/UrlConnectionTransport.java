@@ -0,0 +1,156 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.concurrent.Callback;
+import com.aoapps.lang.io.AoByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Blocking transport built on {@link HttpURLConnection}.  A thread from the executor is held for the duration of
+ * each exchange.
+ *
+ * <p>This is the default transport before Java 11.</p>
+ *
+ * <p>For <code>https</code> endpoints, a {@link SSLSocketFactory} may be provided, such as a
+ * {@link TlsSocketFactory} with a session cache sized for resumption.  Otherwise the JVM default is used.</p>
+ */
+public class UrlConnectionTransport implements HttpTransport {
+
+  private static final Logger logger = Logger.getLogger(UrlConnectionTransport.class.getName());
+
+  private static final UrlConnectionTransport instance = new UrlConnectionTransport();
+
+  /**
+   * Gets the shared default instance.
+   */
+  public static UrlConnectionTransport getInstance() {
+    return instance;
+  }
+
+  private final SSLSocketFactory sslSocketFactory;
+
+  protected UrlConnectionTransport() {
+    this.sslSocketFactory = null;
+  }
+
+  /**
+   * Creates a new transport using the given factory for all <code>https</code> connections.
+   */
+  public UrlConnectionTransport(SSLSocketFactory sslSocketFactory) {
+    if (sslSocketFactory == null) {
+      throw new IllegalArgumentException("sslSocketFactory == null");
+    }
+    this.sslSocketFactory = sslSocketFactory;
+  }
+
+  /**
+   * Gets the factory used for <code>https</code> connections or {@code null} when using the JVM default.
+   */
+  public SSLSocketFactory getSSLSocketFactory() {
+    return sslSocketFactory;
+  }
+
+  @Override
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  public void post(
+      Executor executor,
+      URL endpoint,
+      byte[] request,
+      int connectTimeout,
+      int readTimeout,
+      Callback<? super byte[]> onResponse,
+      Callback<? super Throwable> onError
+  ) {
+    executor.execute(() -> {
+      byte[] response;
+      try {
+        response = post(endpoint, request, connectTimeout, readTimeout);
+      } catch (Throwable t) {
+        onError.call(t);
+        return;
+      }
+      onResponse.call(response);
+    });
+  }
+
+  /**
+   * Opens the connection.  Subclasses may override this to further configure the connection.
+   */
+  protected HttpURLConnection openConnection(URL endpoint) throws IOException {
+    HttpURLConnection conn = (HttpURLConnection) endpoint.openConnection();
+    if (sslSocketFactory != null && conn instanceof HttpsURLConnection) {
+      ((HttpsURLConnection) conn).setSSLSocketFactory(sslSocketFactory);
+    }
+    return conn;
+  }
+
+  /**
+   * Performs a blocking POST.
+   */
+  protected byte[] post(URL endpoint, byte[] request, int connectTimeout, int readTimeout) throws IOException {
+    final HttpURLConnection conn = openConnection(endpoint);
+    conn.setAllowUserInteraction(false);
+    conn.setConnectTimeout(connectTimeout);
+    conn.setDoOutput(true);
+    conn.setFixedLengthStreamingMode(request.length);
+    conn.setInstanceFollowRedirects(false);
+    conn.setReadTimeout(readTimeout);
+    conn.setRequestMethod("POST");
+    conn.setUseCaches(false);
+    // Write request
+    try (OutputStream out = conn.getOutputStream()) {
+      out.write(request);
+      out.flush();
+    }
+    // Get response
+    int responseCode = conn.getResponseCode();
+    logger.log(Level.FINEST, "Got connection with response: {0}", responseCode);
+    if (responseCode != 200) {
+      throw new IOException("Unexpect response code: " + responseCode);
+    }
+    try (InputStream in = conn.getInputStream()) {
+      final AoByteArrayOutputStream bout = new AoByteArrayOutputStream();
+      try {
+        byte[] buff = new byte[4096];
+        int count;
+        while ((count = in.read(buff)) != -1) {
+          bout.write(buff, 0, count);
+        }
+      } finally {
+        bout.close();
+      }
+      return bout.toByteArray();
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Access to virtual threads on Java 21+ while still compiling for Java 8.
+ */
+final class VirtualThreads {
+
+  /** Make no instances. */
+  private VirtualThreads() {
+    throw new AssertionError();
+  }
+
+  private static final Logger logger = Logger.getLogger(VirtualThreads.class.getName());
+
+  /**
+   * The {@code Executors.newVirtualThreadPerTaskExecutor()} method or {@code null} when not available.
+   */
+  private static final Method newVirtualThreadPerTaskExecutor;
+
+  static {
+    Method method;
+    try {
+      method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+    } catch (NoSuchMethodException e) {
+      method = null;
+    }
+    newVirtualThreadPerTaskExecutor = method;
+  }
+
+  /**
+   * Creates a new executor that starts a new virtual thread for each task.
+   *
+   * @return  the executor or {@code null} when virtual threads are not supported by this JVM, including when
+   *          they are still a preview feature that has not been enabled
+   */
+  static ExecutorService newVirtualThreadPerTaskExecutor() {
+    if (newVirtualThreadPerTaskExecutor != null) {
+      try {
+        return (ExecutorService) newVirtualThreadPerTaskExecutor.invoke(null);
+      } catch (InvocationTargetException e) {
+        logger.log(Level.FINE, "Virtual threads not available", e.getCause());
+      } catch (IllegalAccessException e) {
+        logger.log(Level.FINE, "Virtual threads not available", e);
+      }
+    }
+    return null;
+  }
+}
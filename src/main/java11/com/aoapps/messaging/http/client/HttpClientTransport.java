@@ -0,0 +1,185 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.concurrent.Callback;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Non-blocking transport built on {@link HttpClient}, preferring HTTP/2.  Requests to the same endpoint share
+ * a single multiplexed connection.
+ *
+ * <p>A single {@link HttpClient} is shared by all requests.  Since its connect timeout is fixed when built, the
+ * connect timeout of each request is enforced here instead: the request is connected once its body is
+ * requested, which {@link HttpClient} does only after establishing the connection, including any TLS handshake.
+ * A request not connected within its connect timeout fails with an {@link HttpConnectTimeoutException}.  The read
+ * timeout is the request timeout, which {@link HttpClient} starts when the request is sent, so it also bounds
+ * the time spent connecting.</p>
+ *
+ * <p>This is the default transport on Java 11+.</p>
+ */
+final class HttpClientTransport implements HttpTransport {
+
+  private static final Logger logger = Logger.getLogger(HttpClientTransport.class.getName());
+
+  private static final HttpClientTransport instance = new HttpClientTransport();
+
+  static HttpClientTransport getInstance() {
+    return instance;
+  }
+
+  private final HttpClient client = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_2)
+      .followRedirects(HttpClient.Redirect.NEVER)
+      .build();
+
+  private HttpClientTransport() {
+    // Nothing to do
+  }
+
+  @Override
+  public void post(
+      Executor executor,
+      URL endpoint,
+      byte[] request,
+      int connectTimeout,
+      int readTimeout,
+      Callback<? super byte[]> onResponse,
+      Callback<? super Throwable> onError
+  ) {
+    CompletableFuture<Void> connected = new CompletableFuture<>();
+    HttpRequest httpRequest;
+    try {
+      HttpRequest.Builder builder = HttpRequest.newBuilder(endpoint.toURI())
+          .header("Content-Type", "application/x-www-form-urlencoded")
+          .POST(new ConnectedPublisher(HttpRequest.BodyPublishers.ofByteArray(request), connected));
+      if (readTimeout > 0) {
+        builder.timeout(Duration.ofMillis(readTimeout));
+      }
+      httpRequest = builder.build();
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      dispatch(executor, () -> onError.call(e), onError);
+      return;
+    }
+    CompletableFuture<HttpResponse<byte[]>> future = client.sendAsync(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+    AtomicBoolean connectTimedOut = new AtomicBoolean();
+    if (connectTimeout > 0) {
+      connected.orTimeout(connectTimeout, TimeUnit.MILLISECONDS).whenComplete((v, t) -> {
+        if (t instanceof TimeoutException) {
+          connectTimedOut.set(true);
+          future.cancel(true);
+        }
+      });
+    }
+    future.whenComplete((response, t0) -> {
+      // Stops the connect timeout when failed before connecting
+      connected.complete(null);
+      Throwable t;
+      if (t0 != null && connectTimedOut.get()) {
+        t = new HttpConnectTimeoutException("HTTP connect timed out");
+      } else {
+        t = (t0 instanceof CompletionException && t0.getCause() != null) ? t0.getCause() : t0;
+      }
+      dispatch(
+          executor,
+          () -> {
+            if (t != null) {
+              onError.call(t);
+            } else {
+              int responseCode = response.statusCode();
+              logger.log(Level.FINEST, "Got connection with response: {0} over {1}", new Object[]{responseCode, response.version()});
+              if (responseCode != 200) {
+                onError.call(new IOException("Unexpect response code: " + responseCode));
+              } else {
+                onResponse.call(response.body());
+              }
+            }
+          },
+          onError
+      );
+    });
+  }
+
+  /**
+   * Completes a future once the request body is first requested, which happens only once connected.
+   */
+  private static final class ConnectedPublisher implements HttpRequest.BodyPublisher {
+
+    private final HttpRequest.BodyPublisher body;
+    private final CompletableFuture<Void> connected;
+
+    private ConnectedPublisher(HttpRequest.BodyPublisher body, CompletableFuture<Void> connected) {
+      this.body = body;
+      this.connected = connected;
+    }
+
+    @Override
+    public long contentLength() {
+      return body.contentLength();
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+      connected.complete(null);
+      body.subscribe(subscriber);
+    }
+  }
+
+  /**
+   * Invokes a callback through the executor.  When the executor rejects it, such as once shut down or when
+   * saturated, {@code onError} is called with the rejection on the current thread instead, so the exchange is
+   * still completed.
+   */
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  private static void dispatch(Executor executor, Runnable task, Callback<? super Throwable> onError) {
+    try {
+      executor.execute(task);
+    } catch (Throwable t) {
+      try {
+        onError.call(t);
+      } catch (ThreadDeath td) {
+        throw td;
+      } catch (Throwable t2) {
+        logger.log(Level.SEVERE, null, t2);
+      }
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CircuitBreakerTest {
+
+  private static final long OPEN_DELAY = 100;
+
+  private static CircuitBreaker newBreaker() {
+    return new CircuitBreaker("http://localhost/", 3, OPEN_DELAY);
+  }
+
+  /**
+   * Asks to start a connect, which must be allowed.
+   */
+  private static long allow(CircuitBreaker breaker) {
+    long allowed = breaker.allow();
+    assertTrue("allowed: " + allowed, allowed >= 0);
+    return allowed;
+  }
+
+  /**
+   * Opens the breaker with the threshold of failures.
+   */
+  private static void open(CircuitBreaker breaker) {
+    for (int i = 0; i < 3; i++) {
+      breaker.recordFailure(allow(breaker));
+    }
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+  }
+
+  /**
+   * Waits for the open delay, after which the next connect is the half-open probe.
+   */
+  private static void waitOpenDelay(CircuitBreaker breaker) throws InterruptedException {
+    Thread.sleep(OPEN_DELAY + 20);
+    assertFalse(breaker.isRejecting());
+  }
+
+  @Test
+  public void testOpensAfterConsecutiveFailures() {
+    CircuitBreaker breaker = newBreaker();
+    for (int i = 0; i < 2; i++) {
+      breaker.recordFailure(allow(breaker));
+    }
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(2, breaker.getConsecutiveFailures());
+    // A success resets the count
+    breaker.recordSuccess(allow(breaker));
+    assertEquals(0, breaker.getConsecutiveFailures());
+    open(breaker);
+  }
+
+  @Test
+  public void testOpenFailsFast() {
+    CircuitBreaker breaker = newBreaker();
+    open(breaker);
+    assertTrue(breaker.isRejecting());
+    assertEquals(CircuitBreaker.REJECTED, breaker.allow());
+    assertEquals(CircuitBreaker.REJECTED, breaker.allow());
+    assertEquals(2, breaker.getRejected());
+  }
+
+  @Test
+  public void testProbeSuccessCloses() throws InterruptedException {
+    CircuitBreaker breaker = newBreaker();
+    open(breaker);
+    waitOpenDelay(breaker);
+    long probe = allow(breaker);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    // Only a single probe
+    assertTrue(breaker.isRejecting());
+    assertEquals(CircuitBreaker.REJECTED, breaker.allow());
+    breaker.recordSuccess(probe);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    allow(breaker);
+    allow(breaker);
+  }
+
+  @Test
+  public void testProbeFailureReopens() throws InterruptedException {
+    CircuitBreaker breaker = newBreaker();
+    open(breaker);
+    waitOpenDelay(breaker);
+    breaker.recordFailure(allow(breaker));
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(CircuitBreaker.REJECTED, breaker.allow());
+  }
+
+  @Test
+  public void testReleaseRecordsNothing() throws InterruptedException {
+    CircuitBreaker breaker = newBreaker();
+    breaker.release(allow(breaker));
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    assertEquals(0, breaker.getConsecutiveFailures());
+    open(breaker);
+    waitOpenDelay(breaker);
+    // A probe rejected locally lets another probe through, still half-open
+    breaker.release(allow(breaker));
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertEquals(3, breaker.getConsecutiveFailures());
+    allow(breaker);
+    assertEquals(CircuitBreaker.REJECTED, breaker.allow());
+  }
+
+  @Test
+  public void testStaleSuccessDoesNotClose() throws InterruptedException {
+    CircuitBreaker breaker = newBreaker();
+    long slow = allow(breaker);
+    open(breaker);
+    breaker.recordSuccess(slow);
+    assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    assertEquals(3, breaker.getConsecutiveFailures());
+    waitOpenDelay(breaker);
+    long probe = allow(breaker);
+    assertNotEquals(slow, probe);
+    // Only the probe ends the half-open state
+    breaker.recordSuccess(slow);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    assertEquals(CircuitBreaker.REJECTED, breaker.allow());
+    breaker.recordSuccess(probe);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+  }
+
+  @Test
+  public void testStaleFailureDoesNotReopen() throws InterruptedException {
+    CircuitBreaker breaker = newBreaker();
+    long slow = allow(breaker);
+    open(breaker);
+    waitOpenDelay(breaker);
+    long probe = allow(breaker);
+    breaker.recordFailure(slow);
+    assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    breaker.recordSuccess(probe);
+    assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    // Nor counts against the closed breaker
+    long slow2 = allow(breaker);
+    breaker.recordFailure(slow);
+    assertEquals(0, breaker.getConsecutiveFailures());
+    breaker.recordFailure(slow2);
+    assertEquals(1, breaker.getConsecutiveFailures());
+  }
+
+  @Test
+  public void testEvictIfIdle() {
+    CircuitBreaker breaker = newBreaker();
+    long allowed = allow(breaker);
+    // Not while a connect is in flight
+    assertFalse(breaker.evictIfIdle());
+    breaker.recordFailure(allowed);
+    // Nor with failures
+    assertFalse(breaker.evictIfIdle());
+    breaker.recordSuccess(allow(breaker));
+    assertTrue(breaker.evictIfIdle());
+    assertEquals(CircuitBreaker.EVICTED, breaker.allow());
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.messaging.http.HttpSocket;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures {@link HttpSocketClient#connectAsync(java.lang.String)} end-to-end against a {@link StandInServer} on
+ * the loopback interface, as throughput and as sampled latency, from which JMH reports the percentiles.  Each
+ * connect waits for its socket, then closes it.
+ *
+ * <p>Run by {@link #main(java.lang.String[])} from the test class path, or through
+ * <code>org.openjdk.jmh.Main ConnectBenchmark</code>.  Add <code>-prof gc</code> for the allocation rate, and
+ * <code>-t</code> for concurrent connects.</p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConnectBenchmark {
+
+  /**
+   * The transport: <code>nio</code> for {@link NioTransport}, <code>url-connection</code> for
+   * {@link UrlConnectionTransport}, or <code>http-client</code> for the Java 11+ <code>HttpClientTransport</code>.
+   *
+   * <p>Benchmarks run from the class directories, where the default transport is always
+   * {@link UrlConnectionTransport}, since the <code>META-INF/versions/11</code> layer of the multi-release JAR
+   * applies only within the JAR.  <code>http-client</code> requires that layer at the end of the class path,
+   * as surefire has it for the tests.</p>
+   */
+  @Param({"nio", "url-connection", "http-client"})
+  public String transport;
+
+  private StandInServer server;
+
+  private NioTransport nioTransport;
+
+  private HttpSocketClient client;
+
+  private String endpoint;
+
+  @Setup
+  public void setUp() throws IOException {
+    server = new StandInServer();
+    endpoint = server.getUrl().toExternalForm();
+    switch (transport) {
+      case "nio":
+        nioTransport = new NioTransport();
+        client = new HttpSocketClient(nioTransport);
+        break;
+      case "url-connection":
+        client = new HttpSocketClient(UrlConnectionTransport.getInstance());
+        break;
+      case "http-client":
+        HttpTransport httpClientTransport = HttpClientTransportTest.getHttpClientTransport();
+        if (httpClientTransport == null) {
+          throw new IllegalStateException("HttpClientTransport requires Java 11+ and META-INF/versions/11 on the class path");
+        }
+        client = new HttpSocketClient(httpClientTransport);
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected transport: " + transport);
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    try {
+      client.close();
+    } finally {
+      try {
+        if (nioTransport != null) {
+          nioTransport.close();
+        }
+      } finally {
+        server.close();
+      }
+    }
+  }
+
+  private HttpSocket connectAndClose() throws ExecutionException, InterruptedException, IOException {
+    HttpSocket socket = client.connectAsync(endpoint).toCompletableFuture().get();
+    socket.close();
+    return socket;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public HttpSocket connectThroughput() throws ExecutionException, InterruptedException, IOException {
+    return connectAndClose();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public HttpSocket connectLatency() throws ExecutionException, InterruptedException, IOException {
+    return connectAndClose();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(ConnectBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()
+    ).run();
+  }
+}
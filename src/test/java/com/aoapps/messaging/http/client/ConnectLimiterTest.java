@@ -0,0 +1,149 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.Test;
+
+public class ConnectLimiterTest {
+
+  /**
+   * Submits a handshake that records when it runs.
+   */
+  private static void submit(ConnectLimiter limiter, List<Integer> ran, int id) {
+    limiter.submit(() -> ran.add(id));
+  }
+
+  @Test
+  public void testFixedLimit() {
+    ConnectLimiter limiter = new ConnectLimiter(false, 1, 2, 2);
+    List<Integer> ran = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      submit(limiter, ran, i);
+    }
+    assertEquals(2, ran.size());
+    assertEquals(2, limiter.getInFlight());
+    assertEquals(2, limiter.getQueued());
+    assertThrows(RejectedExecutionException.class, () -> submit(limiter, ran, 4));
+    assertEquals(1, limiter.getRejected());
+    assertEquals(2, limiter.getLimit());
+  }
+
+  @Test
+  public void testReleaseRunsQueuedInOrder() {
+    ConnectLimiter limiter = new ConnectLimiter(false, 1, 1, 10);
+    List<Integer> ran = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      submit(limiter, ran, i);
+    }
+    assertEquals(1, ran.size());
+    limiter.release(1000);
+    assertEquals(2, ran.size());
+    limiter.release(-1);
+    assertEquals(3, ran.size());
+    assertEquals(Integer.valueOf(2), ran.get(2));
+    assertEquals(1, limiter.getInFlight());
+    assertEquals(0, limiter.getQueued());
+    // The fixed limit is not adapted on failure
+    assertEquals(1, limiter.getLimit());
+  }
+
+  @Test
+  public void testDrain() {
+    ConnectLimiter limiter = new ConnectLimiter(false, 1, 1, 10);
+    List<Integer> ran = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      submit(limiter, ran, i);
+    }
+    limiter.drain();
+    assertEquals(3, ran.size());
+    assertEquals(0, limiter.getQueued());
+    // Nothing is queued once drained, even over the limit
+    submit(limiter, ran, 3);
+    assertEquals(4, ran.size());
+    assertEquals(0, limiter.getQueued());
+  }
+
+  /**
+   * Runs rounds of handshakes up to the current limit, all succeeding with the given latency.
+   */
+  private static void succeed(ConnectLimiter limiter, int rounds, long latencyNanos) {
+    for (int round = 0; round < rounds; round++) {
+      int limit = limiter.getLimit();
+      for (int i = 0; i < limit; i++) {
+        limiter.submit(() -> { });
+      }
+      for (int i = 0; i < limit; i++) {
+        limiter.release(latencyNanos);
+      }
+    }
+  }
+
+  @Test
+  public void testAdaptiveGrowsToMax() {
+    ConnectLimiter limiter = new ConnectLimiter(true, 2, 8, 100);
+    assertEquals(2, limiter.getLimit());
+    succeed(limiter, 4, 1000);
+    int grown = limiter.getLimit();
+    assertTrue("grown: " + grown, grown > 2);
+    succeed(limiter, 100, 1000);
+    assertEquals(8, limiter.getLimit());
+  }
+
+  @Test
+  public void testAdaptiveShrinksOnFailure() {
+    ConnectLimiter limiter = new ConnectLimiter(true, 2, 16, 100);
+    succeed(limiter, 300, 1000);
+    assertEquals(16, limiter.getLimit());
+    limiter.submit(() -> { });
+    limiter.release(-1);
+    assertEquals(14, limiter.getLimit());
+    for (int i = 0; i < 100; i++) {
+      limiter.submit(() -> { });
+      limiter.release(-1);
+    }
+    assertEquals(2, limiter.getLimit());
+  }
+
+  @Test
+  public void testAdaptiveShrinksOnLatency() {
+    ConnectLimiter limiter = new ConnectLimiter(true, 2, 16, 100);
+    succeed(limiter, 300, 1000);
+    assertEquals(16, limiter.getLimit());
+    // Within tolerance of the baseline
+    limiter.submit(() -> { });
+    limiter.release(1900);
+    assertEquals(16, limiter.getLimit());
+    // Beyond, a sign of queueing
+    limiter.submit(() -> { });
+    limiter.release(5000);
+    assertEquals(14, limiter.getLimit());
+  }
+}
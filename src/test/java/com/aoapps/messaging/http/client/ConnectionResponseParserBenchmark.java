@@ -0,0 +1,120 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.w3c.dom.Element;
+import org.xml.sax.SAXException;
+
+/**
+ * Compares the ways of getting the identifier from a typical connect response: {@link ConnectionResponseParser},
+ * a pooled {@link DocumentBuilder} as used before it and still used as the fallback, and an
+ * {@link XMLStreamReader}.
+ *
+ * <p>Run by {@link #main(java.lang.String[])} from the test class path, or through
+ * <code>org.openjdk.jmh.Main ConnectionResponseParserBenchmark</code>.  Add <code>-prof gc</code> for the
+ * allocation rate.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConnectionResponseParserBenchmark {
+
+  private static final byte[] RESPONSE = (
+      "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+          + "<connection id=\"0123456789abcdefABCDEF\"/>"
+  ).getBytes(StandardCharsets.UTF_8);
+
+  private DocumentBuilder documentBuilder;
+
+  private XMLInputFactory xmlInputFactory;
+
+  @Setup
+  public void setUp() throws ParserConfigurationException {
+    documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    xmlInputFactory = XMLInputFactory.newInstance();
+  }
+
+  @Benchmark
+  public String connectionResponseParser() throws IOException {
+    return ConnectionResponseParser.parseId(RESPONSE);
+  }
+
+  @Benchmark
+  public String documentBuilder() throws IOException, SAXException {
+    Element document;
+    try {
+      document = documentBuilder.parse(new ByteArrayInputStream(RESPONSE)).getDocumentElement();
+    } finally {
+      documentBuilder.reset();
+    }
+    return document.getAttribute(ConnectionResponseParser.ID_ATTRIBUTE);
+  }
+
+  @Benchmark
+  public String xmlStreamReader() throws XMLStreamException {
+    XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new ByteArrayInputStream(RESPONSE));
+    try {
+      reader.nextTag();
+      return reader.getAttributeValue(null, ConnectionResponseParser.ID_ATTRIBUTE);
+    } finally {
+      reader.close();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(ConnectionResponseParserBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()
+    ).run();
+  }
+}
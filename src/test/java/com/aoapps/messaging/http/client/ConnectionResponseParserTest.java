@@ -0,0 +1,191 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.junit.Test;
+import org.w3c.dom.Element;
+
+/**
+ * Tests {@link ConnectionResponseParser} against the DOM parse it replaces: every response it accepts must give
+ * the same identifier as the DOM, and every response outside its subset must be left to the DOM.
+ */
+public class ConnectionResponseParserTest {
+
+  private static byte[] utf8(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Parses the identifier the way {@link HttpSocketClient} does when falling back to a full XML parser.
+   */
+  private static String parseIdDocument(byte[] response) throws Exception {
+    Element document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+        .parse(new ByteArrayInputStream(response)).getDocumentElement();
+    if (!ConnectionResponseParser.ROOT_NAME.equals(document.getNodeName())) {
+      throw new IOException("Unexpected root node name: " + document.getNodeName());
+    }
+    return document.getAttribute(ConnectionResponseParser.ID_ATTRIBUTE);
+  }
+
+  /**
+   * Checks the response is parsed without falling back, to the same identifier as the DOM.
+   */
+  private static void assertParsed(String expected, byte[] response) throws Exception {
+    assertEquals(expected, parseIdDocument(response));
+    assertEquals(expected, ConnectionResponseParser.parseId(response));
+  }
+
+  private static void assertParsed(String expected, String response) throws Exception {
+    assertParsed(expected, utf8(response));
+  }
+
+  /**
+   * Checks the response is left to the DOM, which gives the expected identifier.
+   */
+  private static void assertFallback(String expected, byte[] response) throws Exception {
+    assertNull(ConnectionResponseParser.parseId(response));
+    assertEquals(expected, parseIdDocument(response));
+  }
+
+  private static void assertFallback(String expected, String response) throws Exception {
+    assertFallback(expected, utf8(response));
+  }
+
+  @Test
+  public void testSimple() throws Exception {
+    assertParsed("abc123", "<connection id=\"abc123\"/>");
+    assertParsed("abc123", "<connection id=\"abc123\"></connection>");
+    assertParsed("abc123", "<connection id='abc123' />");
+    assertParsed("abc123", "\r\n <connection\n\tid = \"abc123\"\n/>\n");
+  }
+
+  @Test
+  public void testXmlDeclaration() throws Exception {
+    assertParsed("abc", "<?xml version=\"1.0\"?><connection id=\"abc\"/>");
+    assertParsed("abc", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<connection id=\"abc\"/>");
+    assertParsed("abc", "<?xml version='1.0' encoding='utf-8' standalone='yes'?><connection id=\"abc\"/>");
+    assertParsed("abc", "<?xml version=\"1.0\" encoding=\"US-ASCII\"?><connection id=\"abc\"/>");
+  }
+
+  @Test
+  public void testByteOrderMark() throws Exception {
+    byte[] xml = utf8("<connection id=\"abc\"/>");
+    byte[] response = new byte[3 + xml.length];
+    response[0] = (byte) 0xEF;
+    response[1] = (byte) 0xBB;
+    response[2] = (byte) 0xBF;
+    System.arraycopy(xml, 0, response, 3, xml.length);
+    assertParsed("abc", response);
+  }
+
+  @Test
+  public void testMiscBeforeRoot() throws Exception {
+    assertParsed("abc", "<!-- comment --><?pi data?>\n<!-- - --><connection id=\"abc\"/>");
+  }
+
+  @Test
+  public void testOtherAttributes() throws Exception {
+    assertParsed("abc", "<connection version=\"1\" id=\"abc\" other='x'/>");
+    assertParsed("abc", "<connection idx=\"wrong\" id=\"abc\"/>");
+  }
+
+  @Test
+  public void testMissingId() throws Exception {
+    assertParsed("", "<connection/>");
+    assertParsed("", "<connection other=\"x\"></connection>");
+  }
+
+  @Test
+  public void testReferencesAndNormalization() throws Exception {
+    assertParsed("a&b<c>d\"e'f", "<connection id=\"a&amp;b&lt;c&gt;d&quot;e&apos;f\"/>");
+    assertParsed("AB", "<connection id=\"&#65;&#x42;\"/>");
+    assertParsed("a b  c", "<connection id=\"a\tb\r\n c\"/>");
+    assertParsed("a b c", "<connection id=\"a\rb\nc\"/>");
+  }
+
+  @Test
+  public void testUnexpectedRoot() {
+    assertThrows(IOException.class, () -> ConnectionResponseParser.parseId(utf8("<connections id=\"abc\"/>")));
+    assertThrows(IOException.class, () -> ConnectionResponseParser.parseId(utf8("<x:connection id=\"abc\"/>")));
+  }
+
+  @Test
+  public void testFallbackDoctype() throws Exception {
+    assertFallback(
+        "abc",
+        "<!DOCTYPE connection [<!ATTLIST connection id CDATA \"abc\">]><connection/>"
+    );
+  }
+
+  @Test
+  public void testFallbackEntity() throws Exception {
+    assertFallback(
+        "xyz",
+        "<?xml version=\"1.0\"?><!DOCTYPE connection [<!ENTITY e \"xyz\">]><connection id=\"&e;\"/>"
+    );
+  }
+
+  @Test
+  public void testFallbackEncoding() throws Exception {
+    assertFallback(
+        "caf\u00e9",
+        "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><connection id=\"caf\u00e9\"/>"
+            .getBytes(StandardCharsets.ISO_8859_1)
+    );
+    assertFallback(
+        "abc",
+        "<?xml version=\"1.0\" encoding=\"UTF-16\"?><connection id=\"abc\"/>".getBytes(StandardCharsets.UTF_16)
+    );
+  }
+
+  @Test
+  public void testFallbackNonAscii() throws Exception {
+    assertFallback("caf\u00e9", "<connection id=\"caf\u00e9\"/>");
+  }
+
+  @Test
+  public void testFallbackMalformed() throws Exception {
+    // Left to the DOM, which reports the error
+    for (String response : new String[] {
+        "",
+        "not xml",
+        "<!-- unterminated",
+        "<connection id=\"abc",
+        "<connection id=abc/>",
+        "<connection x=\"a\"id=\"b\"/>",
+        "<connection id=\"&unknown;\"/>"
+    }) {
+      assertNull(response, ConnectionResponseParser.parseId(utf8(response)));
+      assertThrows(response, Exception.class, () -> parseIdDocument(utf8(response)));
+    }
+  }
+}
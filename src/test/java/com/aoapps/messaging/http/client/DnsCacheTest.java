@@ -0,0 +1,152 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class DnsCacheTest {
+
+  private static final long TTL = 500;
+
+  /**
+   * Resolves every host to loopback addresses, counting lookups, and failing them on request.
+   */
+  private static final class TestDnsCache extends DnsCache {
+
+    private final AtomicInteger lookups = new AtomicInteger();
+    private volatile boolean failing;
+
+    private TestDnsCache(long ttl, long negativeTtl) {
+      super(ttl, negativeTtl);
+    }
+
+    @Override
+    protected InetAddress[] lookup(String host) throws UnknownHostException {
+      lookups.incrementAndGet();
+      if (failing) {
+        throw new UnknownHostException(host);
+      }
+      return new InetAddress[]{
+          InetAddress.getByAddress(host, new byte[]{127, 0, 0, 1}),
+          InetAddress.getByAddress(host, new byte[]{127, 0, 0, 2})
+      };
+    }
+  }
+
+  @Test
+  public void testArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new DnsCache(0));
+    assertThrows(IllegalArgumentException.class, () -> new DnsCache(1000, -1));
+  }
+
+  @Test
+  public void testCachedAndRotated() throws UnknownHostException {
+    try (TestDnsCache cache = new TestDnsCache(60_000, 60_000)) {
+      InetAddress first = cache.resolve("a.example");
+      InetAddress second = cache.resolve("a.example");
+      assertEquals("127.0.0.1", first.getHostAddress());
+      assertEquals("127.0.0.2", second.getHostAddress());
+      assertEquals(1, cache.lookups.get());
+      assertEquals(1, cache.getMisses());
+      assertEquals(1, cache.getHits());
+    }
+  }
+
+  @Test
+  public void testUnknownHost() {
+    try (TestDnsCache cache = new TestDnsCache(60_000, 60_000)) {
+      cache.failing = true;
+      assertThrows(UnknownHostException.class, () -> cache.resolve("a.example"));
+    }
+  }
+
+  @Test
+  public void testFailedResolutionBacksOff() throws Exception {
+    try (TestDnsCache cache = new TestDnsCache(TTL, 60_000)) {
+      InetAddress[] addresses = cache.resolveAll("a.example");
+      cache.failing = true;
+      Thread.sleep(TTL + 100);
+      // Expired: resolved on the calling thread, which fails, so the expired addresses are used
+      assertArrayEquals(addresses, cache.resolveAll("a.example"));
+      assertEquals(2, cache.lookups.get());
+      // Not tried again within the negative time-to-live
+      for (int i = 0; i < 10; i++) {
+        assertArrayEquals(addresses, cache.resolveAll("a.example"));
+        cache.prefetch("a.example");
+      }
+      assertEquals(2, cache.lookups.get());
+    }
+  }
+
+  @Test
+  public void testFailedResolutionRetriedWithoutNegativeTtl() throws Exception {
+    try (TestDnsCache cache = new TestDnsCache(TTL, 0)) {
+      cache.resolve("a.example");
+      cache.failing = true;
+      Thread.sleep(TTL + 100);
+      cache.resolve("a.example");
+      cache.resolve("a.example");
+      assertEquals(3, cache.lookups.get());
+    }
+  }
+
+  @Test
+  public void testBounded() throws UnknownHostException {
+    try (TestDnsCache cache = new TestDnsCache(60_000, 60_000)) {
+      for (int i = 0; i < 1024; i++) {
+        cache.resolve("host" + i + ".example");
+      }
+      assertEquals(1024, cache.lookups.get());
+      // Full of unexpired entries: resolved each time, without being cached
+      InetAddress extra = cache.resolve("extra.example");
+      cache.resolve("extra.example");
+      assertEquals(1026, cache.lookups.get());
+      assertEquals("extra.example", extra.getHostName());
+      // The cached hosts are still cached
+      cache.resolve("host0.example");
+      assertEquals(1026, cache.lookups.get());
+    }
+  }
+
+  @Test
+  public void testBoundedEvictsExpired() throws Exception {
+    try (TestDnsCache cache = new TestDnsCache(TTL, 60_000)) {
+      for (int i = 0; i < 1024; i++) {
+        cache.resolve("host" + i + ".example");
+      }
+      Thread.sleep(TTL + 100);
+      // The expired entries are evicted for the new host
+      cache.resolve("extra.example");
+      cache.resolve("extra.example");
+      assertEquals(1025, cache.lookups.get());
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.net.ssl.SNIHostName;
+import javax.net.ssl.SNIServerName;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSocket;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HandshakeCountingSocketTest {
+
+  /**
+   * The methods added to {@link Socket} and {@link SSLSocket} in Java 9, forwarded by the Java 11+ layer.
+   */
+  private static final Set<String> JAVA9_METHODS = new HashSet<>(Arrays.asList(
+      "getApplicationProtocol",
+      "getHandshakeApplicationProtocol",
+      "setHandshakeApplicationProtocolSelector",
+      "getHandshakeApplicationProtocolSelector",
+      "setOption",
+      "getOption",
+      "supportedOptions"
+  ));
+
+  /**
+   * Finds the methods of {@link Socket} and {@link SSLSocket} that are not overridden by the given class.
+   */
+  private static Set<String> findNotForwarded(Class<?> clazz, Set<String> excluded) throws NoSuchMethodException {
+    Set<String> notForwarded = new HashSet<>();
+    for (Method method : SSLSocket.class.getMethods()) {
+      Class<?> declaring = method.getDeclaringClass();
+      int modifiers = method.getModifiers();
+      if (
+          (declaring == Socket.class || declaring == SSLSocket.class)
+              && !Modifier.isStatic(modifiers)
+              && !Modifier.isFinal(modifiers)
+              && !excluded.contains(method.getName())
+      ) {
+        Class<?> overriddenBy = clazz.getMethod(method.getName(), method.getParameterTypes()).getDeclaringClass();
+        if (overriddenBy == Socket.class || overriddenBy == SSLSocket.class) {
+          notForwarded.add(method.toString());
+        }
+      }
+    }
+    return notForwarded;
+  }
+
+  private ServerSocket server;
+  private TlsSocketFactory factory;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    SSLContext sslContext = SSLContext.getInstance("TLS");
+    sslContext.init(null, null, null);
+    factory = new TlsSocketFactory(sslContext);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.close();
+  }
+
+  @Test
+  public void testForwardsJava8Methods() throws NoSuchMethodException {
+    assertEquals(Collections.emptySet(), findNotForwarded(HandshakeCountingSocket.class, JAVA9_METHODS));
+  }
+
+  @Test
+  public void testJava11LayerForwardsEveryMethod() throws NoSuchMethodException {
+    Class<?> layer;
+    try {
+      layer = Class.forName(HandshakeCountingSocket.class.getName() + "11");
+    } catch (ClassNotFoundException | UnsupportedClassVersionError e) {
+      layer = null;
+    }
+    assumeTrue("Java 11+ layer not on the class path", layer != null);
+    assertEquals(Collections.emptySet(), findNotForwarded(layer, Collections.emptySet()));
+  }
+
+  @Test
+  public void testConnectSetsServerName() throws Exception {
+    try (SSLSocket socket = (SSLSocket) factory.createSocket()) {
+      socket.connect(new InetSocketAddress("localhost", server.getLocalPort()), 1000);
+      assertEquals(
+          Collections.singletonList(new SNIHostName("localhost")),
+          socket.getSSLParameters().getServerNames()
+      );
+    }
+  }
+
+  @Test
+  public void testConnectUnresolvedSetsServerName() throws Exception {
+    try (SSLSocket socket = (SSLSocket) factory.createSocket()) {
+      InetSocketAddress unresolved = InetSocketAddress.createUnresolved("localhost", server.getLocalPort());
+      try {
+        socket.connect(unresolved, 1000);
+      } catch (UnknownHostException e) {
+        // Sockets do not connect to unresolved addresses, but the server name is set first
+      }
+      assertEquals(
+          Collections.singletonList(new SNIHostName("localhost")),
+          socket.getSSLParameters().getServerNames()
+      );
+    }
+  }
+
+  @Test
+  public void testConnectAddressSetsNoServerName() throws Exception {
+    try (SSLSocket socket = (SSLSocket) factory.createSocket()) {
+      socket.connect(new InetSocketAddress("127.0.0.1", server.getLocalPort()), 1000);
+      List<SNIServerName> serverNames = socket.getSSLParameters().getServerNames();
+      assertTrue(String.valueOf(serverNames), serverNames == null || serverNames.isEmpty());
+    }
+  }
+
+  @Test
+  public void testConnectKeepsConfiguredServerName() throws Exception {
+    try (SSLSocket socket = (SSLSocket) factory.createSocket()) {
+      SSLParameters params = socket.getSSLParameters();
+      params.setServerNames(Collections.singletonList(new SNIHostName("example.com")));
+      socket.setSSLParameters(params);
+      socket.connect(new InetSocketAddress("localhost", server.getLocalPort()), 1000);
+      assertEquals(
+          Collections.singletonList(new SNIHostName("example.com")),
+          socket.getSSLParameters().getServerNames()
+      );
+    }
+  }
+}
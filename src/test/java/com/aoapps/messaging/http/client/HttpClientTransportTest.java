@@ -0,0 +1,234 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import com.aoapps.messaging.http.HttpSocket;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the Java 11+ {@code HttpClientTransport} against a {@link StandInServer}.
+ *
+ * <p>Tests run from the class directories, where the <code>META-INF/versions/11</code> layer of the
+ * multi-release JAR is not used, so the default transport is always {@link UrlConnectionTransport}.  Surefire
+ * adds that layer to the end of the test class path, and the transport is looked-up by name.  These tests are
+ * skipped on Java 8, so they refer to the <code>java.net.http</code> exceptions by name.</p>
+ */
+public class HttpClientTransportTest {
+
+  private static final byte[] CONNECT_REQUEST = new FormEncoder().add("action", "connect").toByteArray();
+
+  /**
+   * Gets the Java 11+ transport, from the <code>META-INF/versions/11</code> layer on the class path.
+   *
+   * @return  The transport or {@code null} when not running on Java 11+ or the layer is not on the class path
+   */
+  static HttpTransport getHttpClientTransport() {
+    try {
+      return (HttpTransport) Class.forName(HttpTransport.class.getPackage().getName() + ".HttpClientTransport")
+          .getDeclaredMethod("getInstance")
+          .invoke(null);
+    } catch (ReflectiveOperationException | UnsupportedClassVersionError e) {
+      return null;
+    }
+  }
+
+  private HttpTransport transport;
+  private StandInServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    transport = getHttpClientTransport();
+    assumeTrue("HttpClientTransport requires Java 11+ and META-INF/versions/11 on the class path", transport != null);
+    server = new StandInServer();
+  }
+
+  @After
+  public void tearDown() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  private static CompletableFuture<byte[]> post(
+      HttpTransport transport,
+      URL endpoint,
+      byte[] request,
+      int connectTimeout,
+      int readTimeout
+  ) {
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    transport.post(
+        Runnable::run,
+        endpoint,
+        request,
+        connectTimeout,
+        readTimeout,
+        future::complete,
+        future::completeExceptionally
+    );
+    return future;
+  }
+
+  /**
+   * Waits for a response, throwing the failure of the exchange itself.
+   */
+  private static <T> T get(CompletableFuture<T> future) throws Throwable {
+    try {
+      return future.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  @Test
+  public void testConnect() throws Throwable {
+    URL url = server.getUrl();
+    for (int i = 0; i < 2; i++) {
+      byte[] response = get(post(transport, url, CONNECT_REQUEST, 1000, 1000));
+      assertArrayEquals(
+          ("<connection id=\"" + server.getLastId() + "\"/>").getBytes(StandardCharsets.US_ASCII),
+          response
+      );
+    }
+    assertEquals(2, server.getConnects());
+  }
+
+  @Test
+  public void testErrorStatus() throws Throwable {
+    server.setStatus(503);
+    IOException e = assertThrows(
+        IOException.class,
+        () -> get(post(transport, server.getUrl(), CONNECT_REQUEST, 1000, 1000))
+    );
+    assertTrue(e.getMessage(), e.getMessage().contains("503"));
+  }
+
+  @Test
+  public void testExecutorRejectionFailsExchange() throws Throwable {
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    transport.post(
+        task -> {
+          throw new RejectedExecutionException("saturated");
+        },
+        server.getUrl(),
+        CONNECT_REQUEST,
+        1000,
+        1000,
+        future::complete,
+        future::completeExceptionally
+    );
+    RejectedExecutionException e = assertThrows(RejectedExecutionException.class, () -> get(future));
+    assertEquals("saturated", e.getMessage());
+  }
+
+  /**
+   * Opens a server socket that never accepts, with its accept queue filled, so new connects to it stall.
+   */
+  private static List<Closeable> openStalledServer() throws IOException {
+    List<Closeable> closeables = new ArrayList<>();
+    ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+    closeables.add(serverSocket);
+    try {
+      for (int i = 0; i < 4; i++) {
+        Socket socket = new Socket();
+        closeables.add(socket);
+        socket.connect(serverSocket.getLocalSocketAddress(), 100);
+      }
+    } catch (SocketTimeoutException e) {
+      // Accept queue full
+      return closeables;
+    }
+    for (Closeable closeable : closeables) {
+      closeable.close();
+    }
+    throw new AssertionError("Accept queue never filled");
+  }
+
+  @Test
+  public void testConnectTimeout() throws Throwable {
+    List<Closeable> stalled = openStalledServer();
+    try {
+      ServerSocket serverSocket = (ServerSocket) stalled.get(0);
+      URL url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), serverSocket.getLocalPort(), "/");
+      // No read timeout: only the connect timeout can end the exchange
+      IOException e = assertThrows(IOException.class, () -> get(post(transport, url, CONNECT_REQUEST, 200, 0)));
+      assertEquals("java.net.http.HttpConnectTimeoutException", e.getClass().getName());
+    } finally {
+      for (Closeable closeable : stalled) {
+        closeable.close();
+      }
+    }
+  }
+
+  @Test
+  public void testConnectTimeoutEndsWhenConnected() throws Throwable {
+    server.setDelay(500);
+    // The response takes longer than the connect timeout, without a read timeout
+    byte[] response = get(post(transport, server.getUrl(), CONNECT_REQUEST, 100, 0));
+    assertArrayEquals(
+        ("<connection id=\"" + server.getLastId() + "\"/>").getBytes(StandardCharsets.US_ASCII),
+        response
+    );
+  }
+
+  @Test
+  public void testReadTimeout() throws Throwable {
+    server.setDelay(5000);
+    IOException e = assertThrows(
+        IOException.class,
+        () -> get(post(transport, server.getUrl(), CONNECT_REQUEST, 1000, 200))
+    );
+    assertEquals("java.net.http.HttpTimeoutException", e.getClass().getName());
+  }
+
+  @Test
+  public void testHttpSocketClient() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient(transport)) {
+      HttpSocket socket = get(client.connectAsync(server.getUrl().toExternalForm()).toCompletableFuture());
+      assertEquals(server.getLastId(), socket.getId());
+    }
+  }
+}
@@ -0,0 +1,242 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+
+public class HttpResponseParserTest {
+
+  private static final int MAX_BODY_SIZE = 1024;
+
+  private static ByteBuffer buffer(String s) {
+    return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.US_ASCII);
+  }
+
+  /**
+   * Feeds the response one byte at a time, as from the smallest possible reads.
+   *
+   * @return  {@code true} when the response is complete
+   */
+  private static boolean feedBytewise(HttpResponseParser parser, String response) throws IOException {
+    byte[] bytes = bytes(response);
+    for (int i = 0; i < bytes.length; i++) {
+      ByteBuffer buf = ByteBuffer.wrap(bytes, i, 1);
+      if (parser.feed(buf)) {
+        assertEquals("Only the last byte completes the response", bytes.length - 1, i);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Test
+  public void testContentLength() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertFalse(parser.isStarted());
+    assertTrue(parser.feed(buffer("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello")));
+    assertTrue(parser.isStarted());
+    assertEquals(200, parser.getStatus());
+    assertArrayEquals(bytes("hello"), parser.getBody());
+    assertFalse(parser.isConnectionClose());
+  }
+
+  @Test
+  public void testContentLengthBytewise() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(feedBytewise(parser, "HTTP/1.1 200 OK\r\ncontent-length:  5 \r\n\r\nhello"));
+    assertArrayEquals(bytes("hello"), parser.getBody());
+  }
+
+  @Test
+  public void testBytesAfterResponseLeftInBuffer() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    ByteBuffer buf = buffer("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nokEXTRA");
+    assertTrue(parser.feed(buf));
+    assertArrayEquals(bytes("ok"), parser.getBody());
+    assertEquals(5, buf.remaining());
+  }
+
+  @Test
+  public void testEmptyBody() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer("HTTP/1.1 200 OK\r\nContent-Length: 0\r\n\r\n")));
+    assertArrayEquals(new byte[0], parser.getBody());
+  }
+
+  @Test
+  public void testNoContent() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer("HTTP/1.1 204 No Content\r\n\r\n")));
+    assertEquals(204, parser.getStatus());
+    assertFalse(parser.isConnectionClose());
+  }
+
+  @Test
+  public void testChunked() throws IOException {
+    String response = "HTTP/1.1 200 OK\r\n"
+        + "Transfer-Encoding: chunked\r\n"
+        + "\r\n"
+        + "5;name=value\r\n"
+        + "hello\r\n"
+        + "A\r\n"
+        + ", chunked!\r\n"
+        + "0\r\n"
+        + "Trailer: value\r\n"
+        + "\r\n";
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer(response)));
+    assertArrayEquals(bytes("hello, chunked!"), parser.getBody());
+    assertFalse(parser.isConnectionClose());
+    parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(feedBytewise(parser, response));
+    assertArrayEquals(bytes("hello, chunked!"), parser.getBody());
+  }
+
+  @Test
+  public void testChunkedWithoutTerminatingLine() {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertThrows(
+        IOException.class,
+        () -> parser.feed(buffer("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n2\r\nokX\r\n"))
+    );
+  }
+
+  @Test
+  public void testCloseDelimited() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertFalse(parser.feed(buffer("HTTP/1.1 200 OK\r\n\r\nuntil ")));
+    assertFalse(parser.feed(buffer("the end")));
+    assertTrue(parser.isConnectionClose());
+    assertTrue(parser.endOfStream());
+    assertArrayEquals(bytes("until the end"), parser.getBody());
+  }
+
+  @Test
+  public void testIncomplete() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertFalse(parser.feed(buffer("HTTP/1.1 200 OK\r\nContent-Length: 10\r\n\r\nshort")));
+    assertThrows(EOFException.class, parser::endOfStream);
+  }
+
+  @Test
+  public void testInterimResponse() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer(
+        "HTTP/1.1 100 Continue\r\n\r\nHTTP/1.1 200 OK\r\nContent-Length: 2\r\nConnection: close\r\n\r\nok"
+    )));
+    assertEquals(200, parser.getStatus());
+    assertArrayEquals(bytes("ok"), parser.getBody());
+    assertTrue(parser.isConnectionClose());
+  }
+
+  @Test
+  public void testConnectionClose() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer("HTTP/1.1 200 OK\r\nConnection: Close\r\nContent-Length: 0\r\n\r\n")));
+    assertTrue(parser.isConnectionClose());
+  }
+
+  @Test
+  public void testHttp10() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer("HTTP/1.0 200 OK\r\nContent-Length: 0\r\n\r\n")));
+    assertTrue(parser.isConnectionClose());
+    parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer("HTTP/1.0 200 OK\r\nConnection: keep-alive\r\nContent-Length: 0\r\n\r\n")));
+    assertFalse(parser.isConnectionClose());
+  }
+
+  @Test
+  public void testErrorStatus() throws IOException {
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buffer("HTTP/1.1 503 Service Unavailable\r\nContent-Length: 4\r\n\r\nbusy")));
+    assertEquals(503, parser.getStatus());
+  }
+
+  @Test
+  public void testBadStatusLine() {
+    assertThrows(
+        IOException.class,
+        () -> new HttpResponseParser(MAX_BODY_SIZE).feed(buffer("HTTP/2 200 OK\r\n\r\n"))
+    );
+    assertThrows(
+        IOException.class,
+        () -> new HttpResponseParser(MAX_BODY_SIZE).feed(buffer("HTTP/1.1 2x0 OK\r\n\r\n"))
+    );
+  }
+
+  @Test
+  public void testBadContentLength() {
+    assertThrows(
+        IOException.class,
+        () -> new HttpResponseParser(MAX_BODY_SIZE).feed(buffer("HTTP/1.1 200 OK\r\nContent-Length: -1\r\n\r\n"))
+    );
+  }
+
+  @Test
+  public void testLineTooLong() {
+    StringBuilder header = new StringBuilder("HTTP/1.1 200 OK\r\nX-Long: ");
+    for (int i = 0; i < 9000; i++) {
+      header.append('x');
+    }
+    assertThrows(
+        IOException.class,
+        () -> new HttpResponseParser(MAX_BODY_SIZE).feed(buffer(header.toString()))
+    );
+  }
+
+  @Test
+  public void testBodyTooLarge() {
+    HttpResponseParser parser = new HttpResponseParser(4);
+    assertThrows(
+        IOException.class,
+        () -> parser.feed(buffer("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello"))
+    );
+  }
+
+  @Test
+  public void testDirectBuffer() throws IOException {
+    byte[] response = bytes("HTTP/1.1 200 OK\r\nContent-Length: 5\r\n\r\nhello");
+    ByteBuffer buf = ByteBuffer.allocateDirect(response.length);
+    buf.put(response);
+    buf.flip();
+    HttpResponseParser parser = new HttpResponseParser(MAX_BODY_SIZE);
+    assertTrue(parser.feed(buf));
+    assertArrayEquals(bytes("hello"), parser.getBody());
+  }
+}
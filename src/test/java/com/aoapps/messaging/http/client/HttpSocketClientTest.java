@@ -0,0 +1,335 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.aoapps.messaging.http.HttpSocket;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests connects end-to-end against a {@link StandInServer}.
+ */
+public class HttpSocketClientTest {
+
+  private StandInServer server;
+  private NioTransport nioTransport;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StandInServer();
+    nioTransport = new NioTransport();
+  }
+
+  @After
+  public void tearDown() {
+    nioTransport.close();
+    server.close();
+  }
+
+  private static CompletableFuture<HttpSocket> connect(HttpSocketClient client, URL endpoint) {
+    CompletableFuture<HttpSocket> future = new CompletableFuture<>();
+    client.connect(endpoint, future::complete, future::completeExceptionally);
+    return future;
+  }
+
+  /**
+   * Waits for a connect, throwing its failure.
+   */
+  private static HttpSocket get(CompletableFuture<HttpSocket> future) throws Throwable {
+    try {
+      return future.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Gets a URL nothing is listening on.
+   */
+  private static URL getClosedUrl() throws IOException {
+    int port;
+    try (ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      port = serverSocket.getLocalPort();
+    }
+    return new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), port, "/messaging");
+  }
+
+  @Test
+  public void testConnectDefaultTransport() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient()) {
+      HttpSocket socket = get(connect(client, server.getUrl()));
+      assertEquals(server.getLastId(), socket.getId());
+    }
+  }
+
+  @Test
+  public void testConnectDefaultTransportVirtualThreads() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient(true)) {
+      HttpSocket socket = get(connect(client, server.getUrl()));
+      assertEquals(server.getLastId(), socket.getId());
+    }
+  }
+
+  @Test
+  public void testConnectDefaultTransportSharedExecutors() throws Throwable {
+    ExecutorService executor = Executors.newCachedThreadPool();
+    try {
+      AtomicInteger tasks = new AtomicInteger();
+      Executor counting = task -> {
+        tasks.incrementAndGet();
+        executor.execute(task);
+      };
+      try (HttpSocketClient client = new HttpSocketClient(counting, counting)) {
+        HttpSocket socket = get(connect(client, server.getUrl()));
+        assertEquals(server.getLastId(), socket.getId());
+      }
+      assertTrue("tasks: " + tasks.get(), tasks.get() >= 2);
+      // Not shut down by close
+      assertFalse(executor.isShutdown());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testConnectNioTransport() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient(nioTransport)) {
+      URL url = server.getUrl();
+      HttpSocket socket1 = get(connect(client, url));
+      assertEquals(server.getLastId(), socket1.getId());
+      HttpSocket socket2 = get(connect(client, url));
+      assertEquals(server.getLastId(), socket2.getId());
+      assertNotSame(socket1, socket2);
+      assertEquals(1, nioTransport.getNewConnections());
+      EndpointStats stats = client.getEndpointStats(url);
+      assertEquals(2, stats.getSuccesses());
+      assertEquals(0, stats.getFailures());
+    }
+  }
+
+  @Test
+  public void testConnectChunked() throws Throwable {
+    server.setChunked(true);
+    try (HttpSocketClient client = new HttpSocketClient(nioTransport)) {
+      HttpSocket socket = get(connect(client, server.getUrl()));
+      assertEquals(server.getLastId(), socket.getId());
+    }
+  }
+
+  @Test
+  public void testErrorStatus() throws Throwable {
+    server.setStatus(500);
+    try (HttpSocketClient client = new HttpSocketClient(nioTransport)) {
+      URL url = server.getUrl();
+      assertThrows(IOException.class, () -> get(connect(client, url)));
+      assertEquals(1, client.getEndpointStats(url).getFailures());
+    }
+  }
+
+  @Test
+  public void testCircuitBreakerOpens() throws Throwable {
+    server.setStatus(500);
+    try (
+        HttpSocketClient client = HttpSocketClient.builder()
+            .transport(nioTransport)
+            .circuitBreaker(2, 60_000)
+            .build()
+    ) {
+      URL url = server.getUrl();
+      for (int i = 0; i < 2; i++) {
+        assertThrows(IOException.class, () -> get(connect(client, url)));
+      }
+      ConnectException e = assertThrows(ConnectException.class, () -> get(connect(client, url)));
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Circuit breaker open"));
+      assertEquals(2, server.getRequests());
+      assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreaker(url).getState());
+    }
+  }
+
+  @Test
+  public void testLimiterRejectionDoesNotOpenCircuit() throws Throwable {
+    server.setDelay(300);
+    try (
+        HttpSocketClient client = HttpSocketClient.builder()
+            .transport(nioTransport)
+            .connectLimit(1, 0)
+            .circuitBreaker(1, 60_000)
+            .build()
+    ) {
+      URL url = server.getUrl();
+      CompletableFuture<HttpSocket> first = connect(client, url);
+      Thread caller = Thread.currentThread();
+      CompletableFuture<Throwable> rejected = new CompletableFuture<>();
+      AtomicReference<Thread> rejectedOn = new AtomicReference<>();
+      client.connect(url, socket -> { }, t -> {
+        rejectedOn.set(Thread.currentThread());
+        rejected.complete(t);
+      });
+      Throwable t = rejected.get(10, TimeUnit.SECONDS);
+      assertTrue(String.valueOf(t), t instanceof RejectedExecutionException);
+      // Reported asynchronously, like other connect failures
+      assertNotSame(caller, rejectedOn.get());
+      assertEquals(1, client.getConnectsRejected());
+      get(first);
+      CircuitBreaker breaker = client.getCircuitBreaker(url);
+      assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+      assertEquals(0, breaker.getConsecutiveFailures());
+    }
+  }
+
+  @Test
+  public void testCloseFailsDelayedConnects() throws Throwable {
+    HttpSocketClient client = HttpSocketClient.builder().transport(nioTransport).connectRate(1, 1).build();
+    URL url = server.getUrl();
+    CountDownLatch done = new CountDownLatch(3);
+    AtomicInteger failures = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      client.connect(url, socket -> done.countDown(), t -> {
+        failures.incrementAndGet();
+        done.countDown();
+      });
+    }
+    Thread.sleep(100);
+    client.close();
+    assertTrue("Every connect completes", done.await(10, TimeUnit.SECONDS));
+    assertEquals(2, failures.get());
+  }
+
+  @Test
+  public void testFailover() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient(nioTransport)) {
+      URL closed = getClosedUrl();
+      URL url = server.getUrl();
+      CompletableFuture<HttpSocket> future = new CompletableFuture<>();
+      client.connect(Arrays.asList(closed, url), future::complete, future::completeExceptionally);
+      HttpSocket socket = get(future);
+      assertEquals(server.getLastId(), socket.getId());
+      assertEquals(1, client.getEndpointStats(closed).getFailures());
+      // The failed endpoint is tried last from now on
+      future = new CompletableFuture<>();
+      client.connect(Arrays.asList(closed, url), future::complete, future::completeExceptionally);
+      get(future);
+      assertEquals(1, client.getEndpointStats(closed).getFailures());
+      assertEquals(2, client.getEndpointStats(url).getSuccesses());
+    }
+  }
+
+  @Test
+  public void testFailoverAllFail() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient(nioTransport)) {
+      CompletableFuture<HttpSocket> future = new CompletableFuture<>();
+      client.connect(Arrays.asList(getClosedUrl(), getClosedUrl()), future::complete, future::completeExceptionally);
+      IOException e = assertThrows(IOException.class, () -> get(future));
+      assertEquals(1, e.getSuppressed().length);
+    }
+  }
+
+  @Test
+  public void testConnectAfterClose() throws Throwable {
+    HttpSocketClient client = new HttpSocketClient(nioTransport);
+    client.close();
+    CompletableFuture<HttpSocket> connected = new CompletableFuture<>();
+    CompletableFuture<Throwable> failed = new CompletableFuture<>();
+    client.connect(server.getUrl(), connected::complete, failed::complete);
+    Throwable t = failed.get(10, TimeUnit.SECONDS);
+    assertEquals(IllegalStateException.class, t.getClass());
+    assertEquals("HttpSocketClient is closed", t.getMessage());
+    assertFalse(connected.isDone());
+    assertEquals(0, server.getRequests());
+  }
+
+  @Test
+  public void testPrewarmSendsNothing() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient(nioTransport)) {
+      client.prewarm(2, server.getUrl()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+      assertEquals(0, server.getRequests());
+      assertEquals(0, client.getEndpointStats(server.getUrl()).getSuccesses());
+    }
+  }
+
+  @Test
+  public void testPrewarmFails() throws Throwable {
+    try (HttpSocketClient client = new HttpSocketClient(nioTransport)) {
+      CompletableFuture<Void> future = client.prewarm(getClosedUrl(), getClosedUrl()).toCompletableFuture();
+      ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+      assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof ConnectException);
+      assertEquals(1, e.getCause().getSuppressed().length);
+    }
+  }
+
+  @Test
+  public void testPrewarmConnect() throws Throwable {
+    try (HttpSocketClient client = HttpSocketClient.builder().transport(nioTransport).prewarmConnect(true).build()) {
+      client.prewarm(2, server.getUrl()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+      assertEquals(2, server.getConnects());
+    }
+  }
+
+  @Test
+  public void testPrewarmAction() throws Throwable {
+    try (HttpSocketClient client = HttpSocketClient.builder().transport(nioTransport).prewarmAction("ping").build()) {
+      client.prewarm(server.getUrl()).toCompletableFuture().get(10, TimeUnit.SECONDS);
+      assertEquals(1, server.getRequests());
+      assertEquals(0, server.getConnects());
+    }
+  }
+
+  @Test
+  public void testPrewarmActionAndConnect() {
+    HttpSocketClient.Builder builder = HttpSocketClient.builder().prewarmAction("ping").prewarmConnect(true);
+    assertThrows(IllegalStateException.class, builder::build);
+  }
+
+  @Test
+  public void testPrewarmAfterClose() throws Throwable {
+    HttpSocketClient client = new HttpSocketClient(nioTransport);
+    client.close();
+    CompletableFuture<Void> future = client.prewarm(server.getUrl()).toCompletableFuture();
+    ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(10, TimeUnit.SECONDS));
+    assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof IllegalStateException);
+  }
+}
@@ -0,0 +1,505 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.messaging.http.HttpSocket;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates load with {@link HttpSocketClient}, to reproduce production scale locally: opens a number of sockets
+ * with {@link HttpSocketClient#connect(java.net.URL, com.aoapps.concurrent.Callback, com.aoapps.concurrent.Callback)},
+ * then drives messages of a given size and rate through each.  Live throughput, connect rate, error counts and
+ * latency percentiles are printed at each interval, followed by totals.
+ *
+ * <p>Without an endpoint, a {@link StandInServer} is started on the loopback interface, echoing each message,
+ * with optional latency, error rate, and bandwidth limit.  Otherwise, the endpoint may be a staging server.</p>
+ *
+ * <p>Message send and receive belong to <code>HttpSocket</code> in ao-messaging-http, so messages are posted the
+ * way it posts them, as in {@link MessageBenchmark}: one <code>action=messages</code> exchange per message, on
+ * the session of each socket.  A socket sends its next message only once the previous has completed, so a rate
+ * beyond the server's capacity is reported as skipped messages rather than queued without bound.</p>
+ *
+ * <p>Run from the test class path, such as:</p>
+ * <pre>java -cp target/test-classes:target/classes:... com.aoapps.messaging.http.client.LoadGenerator --sockets=100 --rate=10</pre>
+ */
+public final class LoadGenerator {
+
+  private static final Map<String, String> OPTIONS = new LinkedHashMap<>();
+
+  static {
+    OPTIONS.put("endpoint", "The endpoint URL, or none to start a local stand-in server");
+    OPTIONS.put("transport", "nio, url-connection, or default (default nio)");
+    OPTIONS.put("sockets", "The number of sockets (default 10)");
+    OPTIONS.put("connect-rate", "The connects per second, 0 for unlimited (default 0)");
+    OPTIONS.put("rate", "The messages per second per socket, 0 for none (default 1)");
+    OPTIONS.put("size", "The size of each message in bytes (default 64)");
+    OPTIONS.put("duration", "The seconds to send messages for (default 10)");
+    OPTIONS.put("interval", "The seconds between reports (default 1)");
+    OPTIONS.put("latency", "Stand-in server only: the median latency in milliseconds (default 0)");
+    OPTIONS.put("latency-sigma", "Stand-in server only: the log-normal sigma of the latency (default 0)");
+    OPTIONS.put("error-rate", "Stand-in server only: the fraction of requests failed (default 0)");
+    OPTIONS.put("bandwidth", "Stand-in server only: the response bytes per second, 0 for unlimited (default 0)");
+  }
+
+  /** Make no instances. */
+  private LoadGenerator() {
+    throw new AssertionError();
+  }
+
+  private static void usage(PrintStream out) {
+    out.println("usage: " + LoadGenerator.class.getName() + " [--option=value]...");
+    for (Map.Entry<String, String> entry : OPTIONS.entrySet()) {
+      out.println(String.format(Locale.ROOT, "  --%-15s %s", entry.getKey(), entry.getValue()));
+    }
+  }
+
+  private static Map<String, String> parseArgs(String[] args) {
+    Map<String, String> parsed = new LinkedHashMap<>();
+    for (String arg : args) {
+      int eq = arg.indexOf('=');
+      if (!arg.startsWith("--") || eq == -1 || !OPTIONS.containsKey(arg.substring(2, eq))) {
+        throw new IllegalArgumentException("Unexpected argument: " + arg);
+      }
+      parsed.put(arg.substring(2, eq), arg.substring(eq + 1));
+    }
+    return parsed;
+  }
+
+  /**
+   * The latencies recorded within one interval, in nanoseconds.
+   */
+  private static final class Latencies {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    private synchronized void record(long nanos) {
+      if (count == samples.length) {
+        samples = Arrays.copyOf(samples, count * 2);
+      }
+      samples[count++] = nanos;
+    }
+
+    /**
+     * Gets and clears the latencies, sorted.
+     */
+    private synchronized long[] drain() {
+      long[] sorted = Arrays.copyOf(samples, count);
+      count = 0;
+      Arrays.sort(sorted);
+      return sorted;
+    }
+
+    private static String format(long[] sorted) {
+      if (sorted.length == 0) {
+        return "-";
+      }
+      return String.format(
+          Locale.ROOT,
+          "p50=%.2f p90=%.2f p99=%.2f max=%.2f ms",
+          percentile(sorted, 0.50),
+          percentile(sorted, 0.90),
+          percentile(sorted, 0.99),
+          sorted[sorted.length - 1] / 1e6
+      );
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+      return sorted[(int) Math.ceil(percentile * sorted.length) - 1] / 1e6;
+    }
+  }
+
+  /**
+   * The counts of one run, reported as rates per interval.
+   */
+  private static final class Counters {
+    private final AtomicLong connects = new AtomicLong();
+    private final AtomicLong connectErrors = new AtomicLong();
+    private final AtomicLong messages = new AtomicLong();
+    private final AtomicLong messageErrors = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Latencies connectLatencies = new Latencies();
+    private final Latencies messageLatencies = new Latencies();
+  }
+
+  /**
+   * Sends the messages of one socket.
+   */
+  private static final class Sender implements Runnable {
+
+    private final HttpTransport transport;
+    private final ExecutorService executor;
+    private final URL endpoint;
+    private final byte[] request;
+    private final int connectTimeout;
+    private final int readTimeout;
+    private final Counters counters;
+    private final AtomicBoolean inFlight = new AtomicBoolean();
+
+    private Sender(
+        HttpTransport transport,
+        ExecutorService executor,
+        URL endpoint,
+        byte[] request,
+        int connectTimeout,
+        int readTimeout,
+        Counters counters
+    ) {
+      this.transport = transport;
+      this.executor = executor;
+      this.endpoint = endpoint;
+      this.request = request;
+      this.connectTimeout = connectTimeout;
+      this.readTimeout = readTimeout;
+      this.counters = counters;
+    }
+
+    @Override
+    @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+    public void run() {
+      if (!inFlight.compareAndSet(false, true)) {
+        counters.skipped.incrementAndGet();
+        return;
+      }
+      long start = System.nanoTime();
+      try {
+        transport.post(
+            executor,
+            endpoint,
+            request,
+            connectTimeout,
+            readTimeout,
+            response -> {
+              counters.messageLatencies.record(System.nanoTime() - start);
+              counters.messages.incrementAndGet();
+              counters.bytes.addAndGet(request.length + (long) response.length);
+              inFlight.set(false);
+            },
+            t -> {
+              counters.messageErrors.incrementAndGet();
+              inFlight.set(false);
+            }
+        );
+      } catch (Throwable t) {
+        counters.messageErrors.incrementAndGet();
+        inFlight.set(false);
+      }
+    }
+  }
+
+  @SuppressWarnings({"UseSpecificCatch", "TooBroadCatch"})
+  public static void main(String[] args) throws Exception {
+    if (args.length == 1 && ("--help".equals(args[0]) || "-h".equals(args[0]))) {
+      usage(System.out);
+      return;
+    }
+    Map<String, String> options;
+    int sockets;
+    double connectRate;
+    double rate;
+    int size;
+    long duration;
+    long interval;
+    try {
+      options = parseArgs(args);
+      sockets = Integer.parseInt(options.getOrDefault("sockets", "10"));
+      connectRate = Double.parseDouble(options.getOrDefault("connect-rate", "0"));
+      rate = Double.parseDouble(options.getOrDefault("rate", "1"));
+      size = Integer.parseInt(options.getOrDefault("size", "64"));
+      duration = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("duration", "10")));
+      interval = TimeUnit.SECONDS.toNanos(Long.parseLong(options.getOrDefault("interval", "1")));
+      if (sockets < 1 || connectRate < 0 || rate < 0 || size < 0 || duration < 0 || interval <= 0) {
+        throw new IllegalArgumentException("Option out of range: " + options);
+      }
+    } catch (IllegalArgumentException e) {
+      // Including NumberFormatException
+      System.err.println(e.getMessage());
+      usage(System.err);
+      System.exit(2);
+      return;
+    }
+
+    StandInServer server = null;
+    NioTransport nioTransport = null;
+    ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, LoadGenerator.class.getSimpleName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, LoadGenerator.class.getSimpleName() + " scheduler");
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<HttpSocket> connected = new ArrayList<>();
+    try {
+      URL endpoint;
+      String endpointOption = options.get("endpoint");
+      if (endpointOption == null) {
+        server = new StandInServer();
+        server.setEcho(true);
+        server.setLatency(
+            Long.parseLong(options.getOrDefault("latency", "0")),
+            Double.parseDouble(options.getOrDefault("latency-sigma", "0"))
+        );
+        server.setErrorRate(Double.parseDouble(options.getOrDefault("error-rate", "0")));
+        server.setBandwidth(Long.parseLong(options.getOrDefault("bandwidth", "0")));
+        endpoint = server.getUrl();
+      } else {
+        endpoint = new URL(endpointOption);
+      }
+      HttpTransport transport;
+      String transportOption = options.getOrDefault("transport", "nio");
+      switch (transportOption) {
+        case "nio":
+          nioTransport = new NioTransport(Math.max(sockets, NioTransport.DEFAULT_MAX_CONNECTIONS_PER_ROUTE), 60_000);
+          transport = nioTransport;
+          break;
+        case "url-connection":
+          transport = UrlConnectionTransport.getInstance();
+          break;
+        case "default":
+          transport = DefaultTransport.getInstance();
+          break;
+        default:
+          throw new IllegalArgumentException("Unexpected transport: " + transportOption);
+      }
+      HttpSocketClient.Builder builder = HttpSocketClient.builder()
+          .transport(transport)
+          .connectExecutor(executor);
+      if (connectRate > 0) {
+        builder.connectRate(connectRate, 1);
+      }
+      System.out.println("Load: " + sockets + " sockets to " + endpoint + " over " + transportOption
+          + ", " + rate + " messages/s of " + size + " bytes each");
+      Counters counters = new Counters();
+      try (HttpSocketClient client = builder.build()) {
+        // Open the sockets, reporting as they connect
+        long start = System.nanoTime();
+        List<CompletableFuture<Void>> connects = new ArrayList<>(sockets);
+        for (int i = 0; i < sockets; i++) {
+          CompletableFuture<Void> done = new CompletableFuture<>();
+          long connectStart = System.nanoTime();
+          client.connect(
+              endpoint,
+              socket -> {
+                counters.connectLatencies.record(System.nanoTime() - connectStart);
+                counters.connects.incrementAndGet();
+                synchronized (connected) {
+                  connected.add(socket);
+                }
+                done.complete(null);
+              },
+              t -> {
+                counters.connectErrors.incrementAndGet();
+                done.complete(null);
+              }
+          );
+          connects.add(done);
+        }
+        CompletableFuture<Void> allConnected = CompletableFuture.allOf(connects.toArray(new CompletableFuture<?>[0]));
+        Reporter reporter = new Reporter(counters, start);
+        while (!allConnected.isDone()) {
+          try {
+            allConnected.get(interval, TimeUnit.NANOSECONDS);
+          } catch (TimeoutException e) {
+            reporter.report("connecting");
+          }
+        }
+        reporter.report("connected");
+        // Drive the messages
+        List<HttpSocket> sending;
+        synchronized (connected) {
+          sending = new ArrayList<>(connected);
+        }
+        char[] chars = new char[size];
+        Arrays.fill(chars, 'x');
+        String message = new String(chars);
+        if (rate > 0) {
+          long period = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / rate));
+          for (HttpSocket socket : sending) {
+            byte[] request = new FormEncoder()
+                .add("action", "messages")
+                .add("id", socket.getId().toString())
+                .add("l", "1")
+                .add("t0", "s")
+                .add("m0", message)
+                .toByteArray();
+            Sender sender = new Sender(
+                transport,
+                executor,
+                endpoint,
+                request,
+                client.getConnectTimeout(),
+                client.getHandshakeReadTimeout(),
+                counters
+            );
+            // Spread the sockets across the period
+            scheduler.scheduleAtFixedRate(
+                sender,
+                (long) (Math.random() * period),
+                period,
+                TimeUnit.NANOSECONDS
+            );
+          }
+        }
+        long end = System.nanoTime() + duration;
+        for (long now = System.nanoTime(); now < end; now = System.nanoTime()) {
+          TimeUnit.NANOSECONDS.sleep(Math.min(interval, end - now));
+          reporter.report("sending");
+        }
+        scheduler.shutdownNow();
+        reporter.total();
+      }
+    } finally {
+      try {
+        synchronized (connected) {
+          for (HttpSocket socket : connected) {
+            try {
+              socket.close();
+            } catch (Throwable t) {
+              // Best effort
+            }
+          }
+        }
+      } finally {
+        try {
+          scheduler.shutdownNow();
+          executor.shutdownNow();
+        } finally {
+          try {
+            if (nioTransport != null) {
+              nioTransport.close();
+            }
+          } finally {
+            if (server != null) {
+              server.close();
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Prints the rates since the last report, and the totals.
+   */
+  private static final class Reporter {
+
+    private final Counters counters;
+    private final long start;
+    private long last;
+    private long lastConnects;
+    private long lastConnectErrors;
+    private long lastMessages;
+    private long lastMessageErrors;
+    private long lastSkipped;
+    private long lastBytes;
+    private final List<long[]> allMessageLatencies = new ArrayList<>();
+
+    private Reporter(Counters counters, long start) {
+      this.counters = counters;
+      this.start = start;
+      this.last = start;
+    }
+
+    private void report(String phase) {
+      long now = System.nanoTime();
+      double seconds = (now - last) / 1e9;
+      long connects = counters.connects.get();
+      long connectErrors = counters.connectErrors.get();
+      long messages = counters.messages.get();
+      long messageErrors = counters.messageErrors.get();
+      long skipped = counters.skipped.get();
+      long bytes = counters.bytes.get();
+      long[] messageLatencies = counters.messageLatencies.drain();
+      allMessageLatencies.add(messageLatencies);
+      System.out.println(String.format(
+          Locale.ROOT,
+          "%7.1fs %-10s connects %8.1f/s (%d, %d errors) %s | messages %9.1f/s %8.2f MB/s"
+              + " (%d errors, %d skipped) %s",
+          (now - start) / 1e9,
+          phase,
+          (connects - lastConnects) / seconds,
+          connects,
+          connectErrors - lastConnectErrors,
+          Latencies.format(counters.connectLatencies.drain()),
+          (messages - lastMessages) / seconds,
+          (bytes - lastBytes) / seconds / 1e6,
+          messageErrors - lastMessageErrors,
+          skipped - lastSkipped,
+          Latencies.format(messageLatencies)
+      ));
+      last = now;
+      lastConnects = connects;
+      lastConnectErrors = connectErrors;
+      lastMessages = messages;
+      lastMessageErrors = messageErrors;
+      lastSkipped = skipped;
+      lastBytes = bytes;
+    }
+
+    private void total() {
+      int count = 0;
+      for (long[] latencies : allMessageLatencies) {
+        count += latencies.length;
+      }
+      long[] sorted = new long[count];
+      int pos = 0;
+      for (long[] latencies : allMessageLatencies) {
+        System.arraycopy(latencies, 0, sorted, pos, latencies.length);
+        pos += latencies.length;
+      }
+      Arrays.sort(sorted);
+      System.out.println(String.format(
+          Locale.ROOT,
+          "Total: %d connects (%d errors), %d messages (%d errors, %d skipped) in %.1fs, messages %s",
+          counters.connects.get(),
+          counters.connectErrors.get(),
+          counters.messages.get(),
+          counters.messageErrors.get(),
+          counters.skipped.get(),
+          (System.nanoTime() - start) / 1e9,
+          Latencies.format(sorted)
+      ));
+    }
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures message round-trips against a {@link StandInServer} on the loopback interface, echoing each batch of
+ * messages in the response to the request that posts it, as throughput and as sampled latency.
+ *
+ * <p>Message send and receive belong to <code>HttpSocket</code> in ao-messaging-http, so each round-trip is
+ * performed here the way it posts messages: one <code>action=messages</code> exchange over the transport, on a
+ * session from {@link HttpSocketClient#connectAsync(java.lang.String)}, with each message encoded into the form.
+ * Byte array and file messages are Base64 encoded, and file messages are read from a temporary file for each
+ * round-trip.  The echoed response is checked for the whole batch.</p>
+ *
+ * <p>Run by {@link #main(java.lang.String[])} from the test class path, or through
+ * <code>org.openjdk.jmh.Main MessageBenchmark</code>.  Add <code>-prof gc</code> for the allocation rate, and
+ * <code>-t</code> for concurrent round-trips.</p>
+ */
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageBenchmark {
+
+  /**
+   * The transport: <code>nio</code> for {@link NioTransport} or <code>url-connection</code> for
+   * {@link UrlConnectionTransport}.  Only <code>nio</code> is run by default; select the other with
+   * <code>-p transport=url-connection</code>.
+   */
+  @Param({"nio"})
+  public String transport;
+
+  /**
+   * The type of message: <code>string</code>, <code>bytes</code> for a byte array, or <code>file</code>.
+   */
+  @Param({"string", "bytes", "file"})
+  public String type;
+
+  /**
+   * The size of each message in bytes, before encoding.  {@link NioTransport} limits response bodies to 64 KiB,
+   * so a batch of larger messages requires <code>url-connection</code>.
+   */
+  @Param({"64", "2048"})
+  public int messageSize;
+
+  /**
+   * The number of messages in each round-trip.
+   */
+  @Param({"1", "16"})
+  public int batchSize;
+
+  private StandInServer server;
+
+  private NioTransport nioTransport;
+
+  private HttpTransport httpTransport;
+
+  private HttpSocketClient client;
+
+  private String id;
+
+  private String stringMessage;
+
+  private byte[] bytesMessage;
+
+  private Path file;
+
+  private URL url;
+
+  @Setup
+  public void setUp() throws IOException, ExecutionException, InterruptedException {
+    server = new StandInServer();
+    server.setEcho(true);
+    url = server.getUrl();
+    switch (transport) {
+      case "nio":
+        nioTransport = new NioTransport();
+        httpTransport = nioTransport;
+        break;
+      case "url-connection":
+        httpTransport = UrlConnectionTransport.getInstance();
+        break;
+      default:
+        throw new IllegalArgumentException("Unexpected transport: " + transport);
+    }
+    client = new HttpSocketClient(httpTransport);
+    id = client.connectAsync(url.toExternalForm()).toCompletableFuture().get().getId().toString();
+    char[] chars = new char[messageSize];
+    Arrays.fill(chars, 'x');
+    stringMessage = new String(chars);
+    bytesMessage = new byte[messageSize];
+    new Random(1).nextBytes(bytesMessage);
+    file = Files.createTempFile(MessageBenchmark.class.getSimpleName(), null);
+    Files.write(file, bytesMessage);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try {
+      client.close();
+    } finally {
+      try {
+        if (nioTransport != null) {
+          nioTransport.close();
+        }
+      } finally {
+        try {
+          server.close();
+        } finally {
+          Files.deleteIfExists(file);
+        }
+      }
+    }
+  }
+
+  /**
+   * Encodes the value of one message for the form.
+   */
+  private String encode() throws IOException {
+    switch (type) {
+      case "string":
+        return stringMessage;
+      case "bytes":
+        return Base64.getEncoder().encodeToString(bytesMessage);
+      case "file":
+        return Base64.getEncoder().encodeToString(Files.readAllBytes(file));
+      default:
+        throw new IllegalArgumentException("Unexpected type: " + type);
+    }
+  }
+
+  private byte[] roundTrip() throws IOException, ExecutionException, InterruptedException {
+    String typeCode = type.substring(0, 1);
+    FormEncoder form = new FormEncoder()
+        .add("action", "messages")
+        .add("id", id)
+        .add("l", Integer.toString(batchSize));
+    for (int i = 0; i < batchSize; i++) {
+      form.add("t" + i, typeCode).add("m" + i, encode());
+    }
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    httpTransport.post(
+        Runnable::run,
+        url,
+        form.toByteArray(),
+        client.getConnectTimeout(),
+        client.getHandshakeReadTimeout(),
+        future::complete,
+        future::completeExceptionally
+    );
+    byte[] response = future.get();
+    // The whole batch is echoed
+    String echoed = new String(response, StandardCharsets.UTF_8);
+    int messages = 0;
+    for (int i = echoed.indexOf("<message "); i != -1; i = echoed.indexOf("<message ", i + 1)) {
+      messages++;
+    }
+    if (messages != batchSize || !echoed.endsWith("</message></messages>")) {
+      throw new IOException("Unexpected echo of " + messages + " messages, expected " + batchSize);
+    }
+    return response;
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public byte[] roundTripThroughput() throws IOException, ExecutionException, InterruptedException {
+    return roundTrip();
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public byte[] roundTripLatency() throws IOException, ExecutionException, InterruptedException {
+    return roundTrip();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(
+        new OptionsBuilder()
+            .include(MessageBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()
+    ).run();
+  }
+}
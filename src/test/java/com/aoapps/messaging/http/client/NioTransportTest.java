@@ -0,0 +1,480 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NioTransportTest {
+
+  private static final byte[] CONNECT_REQUEST = new FormEncoder().add("action", "connect").toByteArray();
+
+  private StandInServer server;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StandInServer();
+  }
+
+  @After
+  public void tearDown() {
+    server.close();
+  }
+
+  private static CompletableFuture<byte[]> post(
+      NioTransport transport,
+      URL endpoint,
+      byte[] request,
+      int connectTimeout,
+      int readTimeout
+  ) {
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    transport.post(
+        Runnable::run,
+        endpoint,
+        request,
+        connectTimeout,
+        readTimeout,
+        future::complete,
+        future::completeExceptionally
+    );
+    return future;
+  }
+
+  /**
+   * Waits for a response, throwing the failure of the exchange itself.
+   */
+  private static byte[] get(CompletableFuture<byte[]> future) throws Throwable {
+    try {
+      return future.get(10, TimeUnit.SECONDS);
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private byte[] connectResponse() {
+    return ("<connection id=\"" + server.getLastId() + "\"/>").getBytes(StandardCharsets.US_ASCII);
+  }
+
+  @Test
+  public void testKeepAlive() throws Throwable {
+    try (NioTransport transport = new NioTransport(4, 10_000)) {
+      URL url = server.getUrl();
+      for (int i = 0; i < 3; i++) {
+        byte[] response = get(post(transport, url, CONNECT_REQUEST, 1000, 1000));
+        assertArrayEquals(connectResponse(), response);
+      }
+      assertEquals(1, transport.getNewConnections());
+      assertEquals(2, transport.getPoolHits());
+      assertEquals(3, server.getConnects());
+    }
+  }
+
+  @Test
+  public void testChunked() throws Throwable {
+    server.setChunked(true);
+    try (NioTransport transport = new NioTransport(4, 10_000)) {
+      URL url = server.getUrl();
+      for (int i = 0; i < 2; i++) {
+        byte[] response = get(post(transport, url, CONNECT_REQUEST, 1000, 1000));
+        assertArrayEquals(connectResponse(), response);
+      }
+      // The chunked body is fully consumed, so the connection is reused
+      assertEquals(1, transport.getNewConnections());
+    }
+  }
+
+  private static byte[] newRequest(int size) {
+    byte[] request = new byte[size];
+    for (int i = 0; i < size; i++) {
+      request[i] = (byte) ('a' + i % 26);
+    }
+    return request;
+  }
+
+  @Test
+  public void testEchoLargeRequest() throws Throwable {
+    byte[] request = newRequest(48 * 1024);
+    try (NioTransport transport = new NioTransport()) {
+      assertArrayEquals(request, get(post(transport, server.getUrl(), request, 1000, 5000)));
+    }
+  }
+
+  @Test
+  public void testResponseTooLarge() throws Throwable {
+    byte[] request = newRequest(128 * 1024);
+    try (NioTransport transport = new NioTransport()) {
+      IOException e = assertThrows(
+          IOException.class,
+          () -> get(post(transport, server.getUrl(), request, 1000, 5000))
+      );
+      assertTrue(e.getMessage(), e.getMessage().startsWith("Response body too large"));
+    }
+  }
+
+  @Test
+  public void testErrorStatus() throws Throwable {
+    server.setStatus(503);
+    try (NioTransport transport = new NioTransport()) {
+      IOException e = assertThrows(
+          IOException.class,
+          () -> get(post(transport, server.getUrl(), CONNECT_REQUEST, 1000, 1000))
+      );
+      assertTrue(e.getMessage(), e.getMessage().contains("503"));
+    }
+  }
+
+  @Test
+  public void testCloseDelimited() throws Throwable {
+    AtomicInteger requests = new AtomicInteger();
+    try (
+        RawServer raw = new RawServer((in, out) -> {
+          readRequest(in);
+          requests.incrementAndGet();
+          out.write("HTTP/1.1 200 OK\r\n\r\nclose-delimited body".getBytes(StandardCharsets.US_ASCII));
+          return false;
+        });
+        NioTransport transport = new NioTransport(4, 10_000)
+    ) {
+      for (int i = 0; i < 2; i++) {
+        assertArrayEquals(
+            "close-delimited body".getBytes(StandardCharsets.US_ASCII),
+            get(post(transport, raw.getUrl(), CONNECT_REQUEST, 1000, 1000))
+        );
+      }
+      // A body delimited by end of stream leaves nothing to reuse
+      assertEquals(2, transport.getNewConnections());
+      assertEquals(0, transport.getPoolHits());
+      assertEquals(2, requests.get());
+    }
+  }
+
+  @Test
+  public void testRetryOnStaleConnection() throws Throwable {
+    AtomicInteger requests = new AtomicInteger();
+    try (
+        RawServer raw = new RawServer(new RawServer.Handler() {
+          @Override
+          public boolean handle(InputStream in, OutputStream out) throws IOException {
+            readRequest(in);
+            requests.incrementAndGet();
+            out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            // The next request on this connection is read, then the connection is closed without a response, as
+            // when the server closes a kept-alive connection while the request is in flight
+            readRequest(in);
+            requests.incrementAndGet();
+            return false;
+          }
+        });
+        NioTransport transport = new NioTransport(4, 10_000)
+    ) {
+      URL url = raw.getUrl();
+      byte[] ok = "ok".getBytes(StandardCharsets.US_ASCII);
+      assertArrayEquals(ok, get(post(transport, url, CONNECT_REQUEST, 1000, 1000)));
+      assertArrayEquals(ok, get(post(transport, url, CONNECT_REQUEST, 1000, 1000)));
+      assertEquals(1, transport.getPoolHits());
+      assertEquals(2, transport.getNewConnections());
+      assertEquals(3, requests.get());
+    }
+  }
+
+  @Test
+  public void testRetryOnlyOnce() throws Throwable {
+    try (
+        RawServer raw = new RawServer(new RawServer.Handler() {
+          private final AtomicInteger connections = new AtomicInteger();
+
+          @Override
+          public boolean handle(InputStream in, OutputStream out) throws IOException {
+            readRequest(in);
+            if (connections.incrementAndGet() == 1) {
+              out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+              out.flush();
+              readRequest(in);
+            }
+            // Every later request is dropped
+            return false;
+          }
+        });
+        NioTransport transport = new NioTransport(4, 10_000)
+    ) {
+      URL url = raw.getUrl();
+      get(post(transport, url, CONNECT_REQUEST, 1000, 1000));
+      // Not retried on a new connection, which is not reused
+      assertThrows(IOException.class, () -> get(post(transport, url, CONNECT_REQUEST, 1000, 1000)));
+      assertEquals(2, transport.getNewConnections());
+    }
+  }
+
+  @Test
+  public void testReadTimeout() throws Throwable {
+    CountDownLatch received = new CountDownLatch(1);
+    CountDownLatch respond = new CountDownLatch(1);
+    try (
+        RawServer raw = new RawServer((in, out) -> {
+          readRequest(in);
+          received.countDown();
+          awaitLatch(respond);
+          out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+          return false;
+        });
+        NioTransport transport = new NioTransport()
+    ) {
+      try {
+        // No connect timeout, so only the read timeout can end the exchange
+        CompletableFuture<byte[]> future = post(transport, raw.getUrl(), CONNECT_REQUEST, 0, 200);
+        SocketTimeoutException e = assertThrows(SocketTimeoutException.class, () -> get(future));
+        assertEquals("Read timed out", e.getMessage());
+        // The request was sent, and timed out while the response was still held back
+        assertTrue(received.await(10, TimeUnit.SECONDS));
+        assertEquals(1, respond.getCount());
+      } finally {
+        respond.countDown();
+      }
+    }
+  }
+
+  @Test
+  public void testConnectTimeoutWaitingForConnection() throws Throwable {
+    CountDownLatch respond = new CountDownLatch(1);
+    try (
+        RawServer raw = new RawServer((in, out) -> {
+          readRequest(in);
+          awaitLatch(respond);
+          out.write("HTTP/1.1 200 OK\r\nContent-Length: 2\r\n\r\nok".getBytes(StandardCharsets.US_ASCII));
+          return true;
+        });
+        NioTransport transport = new NioTransport(1, 10_000)
+    ) {
+      URL url = raw.getUrl();
+      CompletableFuture<byte[]> first;
+      try {
+        first = post(transport, url, CONNECT_REQUEST, 1000, 0);
+        // No read timeout, so only the connect timeout can end the exchange
+        CompletableFuture<byte[]> second = post(transport, url, CONNECT_REQUEST, 200, 0);
+        SocketTimeoutException e = assertThrows(SocketTimeoutException.class, () -> get(second));
+        assertEquals("connect timed out waiting for a connection", e.getMessage());
+        // Timed out while the only connection was still in use
+        assertFalse(first.isDone());
+      } finally {
+        respond.countDown();
+      }
+      // The first exchange is unaffected
+      assertArrayEquals("ok".getBytes(StandardCharsets.US_ASCII), get(first));
+      assertEquals(1, transport.getNewConnections());
+    }
+  }
+
+  @Test
+  public void testWaitsForConnection() throws Throwable {
+    server.setDelay(100);
+    try (NioTransport transport = new NioTransport(1, 10_000)) {
+      URL url = server.getUrl();
+      CompletableFuture<byte[]> first = post(transport, url, CONNECT_REQUEST, 5000, 5000);
+      CompletableFuture<byte[]> second = post(transport, url, CONNECT_REQUEST, 5000, 5000);
+      get(first);
+      get(second);
+      assertEquals(1, transport.getNewConnections());
+      assertEquals(1, transport.getPoolHits());
+    }
+  }
+
+  @Test
+  public void testIdleTimeout() throws Throwable {
+    try (NioTransport transport = new NioTransport(4, 100)) {
+      URL url = server.getUrl();
+      get(post(transport, url, CONNECT_REQUEST, 1000, 1000));
+      Thread.sleep(500);
+      get(post(transport, url, CONNECT_REQUEST, 1000, 1000));
+      assertEquals(2, transport.getNewConnections());
+      assertEquals(0, transport.getPoolHits());
+    }
+  }
+
+  @Test
+  public void testCloseFailsInProgress() throws Throwable {
+    server.setDelay(2000);
+    CompletableFuture<byte[]> future;
+    try (NioTransport transport = new NioTransport()) {
+      future = post(transport, server.getUrl(), CONNECT_REQUEST, 1000, 5000);
+      Thread.sleep(100);
+    }
+    assertThrows(IOException.class, () -> get(future));
+  }
+
+  @Test
+  public void testPostAfterClose() throws Throwable {
+    NioTransport transport = new NioTransport();
+    transport.close();
+    assertThrows(IOException.class, () -> get(post(transport, server.getUrl(), CONNECT_REQUEST, 1000, 1000)));
+  }
+
+  @Test
+  public void testExecutorRejectionFailsExchange() throws Throwable {
+    try (NioTransport transport = new NioTransport()) {
+      CompletableFuture<byte[]> future = new CompletableFuture<>();
+      transport.post(
+          task -> {
+            throw new RejectedExecutionException("saturated");
+          },
+          server.getUrl(),
+          CONNECT_REQUEST,
+          1000,
+          1000,
+          future::complete,
+          future::completeExceptionally
+      );
+      RejectedExecutionException e = assertThrows(RejectedExecutionException.class, () -> get(future));
+      assertEquals("saturated", e.getMessage());
+      assertEquals(1, server.getConnects());
+    }
+  }
+
+  /**
+   * Waits for a latch in a {@link RawServer.Handler}, which is left to the end of the test.
+   */
+  private static void awaitLatch(CountDownLatch latch) throws IOException {
+    try {
+      if (!latch.await(10, TimeUnit.SECONDS)) {
+        throw new IOException("Timeout waiting for latch");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    }
+  }
+
+  /**
+   * Reads the headers and body of one request, which always has a <code>Content-Length</code>.
+   */
+  private static void readRequest(InputStream in) throws IOException {
+    ByteArrayOutputStream headers = new ByteArrayOutputStream();
+    // The last four bytes read, ending the headers at CRLF CRLF
+    int last = 0;
+    while (last != 0x0D0A0D0A) {
+      int b = in.read();
+      if (b == -1) {
+        throw new IOException("End of stream in request headers");
+      }
+      headers.write(b);
+      last = (last << 8) | b;
+    }
+    int contentLength = 0;
+    for (String line : new String(headers.toByteArray(), StandardCharsets.US_ASCII).split("\r\n")) {
+      if (line.toLowerCase(Locale.ROOT).startsWith("content-length:")) {
+        contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+      }
+    }
+    for (int i = 0; i < contentLength; i++) {
+      if (in.read() == -1) {
+        throw new IOException("End of stream in request body");
+      }
+    }
+  }
+
+  /**
+   * A server on raw sockets, for responses the JDK server does not send.
+   */
+  private static final class RawServer implements Closeable {
+
+    @FunctionalInterface
+    private interface Handler {
+      /**
+       * Handles one connection.
+       *
+       * @return  {@code true} to call again on the same connection, {@code false} to close it
+       */
+      boolean handle(InputStream in, OutputStream out) throws IOException;
+    }
+
+    private final ServerSocket serverSocket;
+    private final Thread thread;
+
+    private RawServer(Handler handler) throws IOException {
+      serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      thread = new Thread(() -> {
+        while (!serverSocket.isClosed()) {
+          Socket socket;
+          try {
+            socket = serverSocket.accept();
+          } catch (IOException e) {
+            return;
+          }
+          Thread connection = new Thread(() -> {
+            try (Socket s = socket) {
+              s.setTcpNoDelay(true);
+              InputStream in = s.getInputStream();
+              OutputStream out = s.getOutputStream();
+              while (handler.handle(in, out)) {
+                out.flush();
+              }
+              out.flush();
+            } catch (IOException e) {
+              // Connection closed by the client
+            }
+          });
+          connection.setDaemon(true);
+          connection.start();
+        }
+      }, RawServer.class.getSimpleName());
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    private URL getUrl() throws IOException {
+      return new URL("http", serverSocket.getInetAddress().getHostAddress(), serverSocket.getLocalPort(), "/");
+    }
+
+    @Override
+    public void close() throws IOException {
+      serverSocket.close();
+    }
+  }
+}
@@ -0,0 +1,477 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import com.aoapps.security.Identifier;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for the server side of the messaging protocol, on a loopback port.
+ *
+ * <p><code>action=connect</code> is answered with <code>&lt;connection id="..."/&gt;</code> and a new
+ * identifier.  <code>action=messages</code> carries the messages of a connection, as
+ * <code>id</code>, the count <code>l</code>, and each message <code>m0</code>, <code>m1</code>, ..., and is
+ * answered with the messages {@linkplain #send(com.aoapps.security.Identifier, java.lang.String) sent} to that
+ * connection, as <code>&lt;messages&gt;&lt;message seq="..."&gt;...&lt;/message&gt;&lt;/messages&gt;</code>.
+ * A request carrying no messages is a long poll, held until a message is sent or the
+ * {@linkplain #setLongPollTimeout(long) long poll timeout}.  The posted messages may also be
+ * {@linkplain #setEcho(boolean) echoed}.  Any other request body is echoed back.</p>
+ *
+ * <p>Each response may be delayed by a latency distribution, replaced by an error status, at random or always,
+ * limited in bandwidth, or sent chunked instead of with a <code>Content-Length</code>.</p>
+ */
+final class StandInServer implements Closeable {
+
+  /**
+   * The messages of one connection.
+   */
+  private static final class Connection {
+    private final BlockingQueue<String> outgoing = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> received = new LinkedBlockingQueue<>();
+    private final AtomicInteger seq = new AtomicInteger();
+  }
+
+  static {
+    // Nagle's algorithm otherwise delays the small responses of kept-alive connections
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private final HttpServer server;
+  private final ExecutorService executor;
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger connects = new AtomicInteger();
+  private final AtomicInteger errors = new AtomicInteger();
+  private final AtomicInteger polling = new AtomicInteger();
+  private final ConcurrentMap<String, Connection> connections = new ConcurrentHashMap<>();
+  private final Random random = new Random();
+  private volatile long latencyMedian;
+  private volatile double latencySigma;
+  private volatile int status = 200;
+  private volatile double errorRate;
+  private volatile long bandwidth;
+  private volatile long longPollTimeout = 10_000;
+  private volatile boolean echo;
+  private volatile boolean chunked;
+  private volatile Identifier lastId;
+
+  StandInServer() throws IOException {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, StandInServer.class.getSimpleName());
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  URL getUrl() throws MalformedURLException {
+    InetSocketAddress address = server.getAddress();
+    return new URL("http", address.getHostString(), address.getPort(), "/messaging");
+  }
+
+  /**
+   * Gets the number of requests received.
+   */
+  int getRequests() {
+    return requests.get();
+  }
+
+  /**
+   * Gets the number of connects answered with a new identifier.
+   */
+  int getConnects() {
+    return connects.get();
+  }
+
+  /**
+   * Gets the number of requests answered with an error status, always or at random.
+   */
+  int getErrors() {
+    return errors.get();
+  }
+
+  /**
+   * Gets the number of long polls currently held.
+   */
+  int getPolling() {
+    return polling.get();
+  }
+
+  /**
+   * Gets the identifier of the most recent connect.
+   */
+  Identifier getLastId() {
+    return lastId;
+  }
+
+  /**
+   * Delays each response by the same time.
+   *
+   * @param  delay  The delay in milliseconds, {@code 0} for none
+   */
+  void setDelay(long delay) {
+    setLatency(delay, 0);
+  }
+
+  /**
+   * Delays each response by a log-normal latency, with a long tail as seen on real networks.
+   *
+   * @param  median  The median delay in milliseconds, {@code 0} for none
+   * @param  sigma  The standard deviation of the natural logarithm of the delay, {@code 0} for a fixed delay
+   */
+  void setLatency(long median, double sigma) {
+    if (median < 0) {
+      throw new IllegalArgumentException("median < 0: " + median);
+    }
+    if (sigma < 0) {
+      throw new IllegalArgumentException("sigma < 0: " + sigma);
+    }
+    synchronized (random) {
+      this.latencyMedian = median;
+      this.latencySigma = sigma;
+    }
+  }
+
+  /**
+   * Samples the latency distribution.
+   *
+   * @return  The delay in milliseconds
+   */
+  long sampleLatency() {
+    synchronized (random) {
+      if (latencyMedian == 0 || latencySigma == 0) {
+        return latencyMedian;
+      }
+      return Math.round(latencyMedian * Math.exp(latencySigma * random.nextGaussian()));
+    }
+  }
+
+  /**
+   * Seeds the random latencies and errors, for a repeatable sequence.
+   */
+  void setSeed(long seed) {
+    synchronized (random) {
+      random.setSeed(seed);
+    }
+  }
+
+  /**
+   * Answers every request with the given status.  Any status other than {@code 200} is sent without a body.
+   */
+  void setStatus(int status) {
+    this.status = status;
+  }
+
+  /**
+   * Answers a random fraction of requests with <code>500 Internal Server Error</code>.
+   *
+   * @param  errorRate  The probability of an error, from {@code 0} for none to {@code 1} for every request
+   */
+  void setErrorRate(double errorRate) {
+    if (!(errorRate >= 0 && errorRate <= 1)) {
+      throw new IllegalArgumentException("errorRate not in [0, 1]: " + errorRate);
+    }
+    this.errorRate = errorRate;
+  }
+
+  /**
+   * Limits the rate response bodies are sent.
+   *
+   * @param  bandwidth  The limit in bytes per second, {@code 0} for unlimited
+   */
+  void setBandwidth(long bandwidth) {
+    if (bandwidth < 0) {
+      throw new IllegalArgumentException("bandwidth < 0: " + bandwidth);
+    }
+    this.bandwidth = bandwidth;
+  }
+
+  /**
+   * Sets how long a long poll is held waiting for a message.
+   *
+   * @param  longPollTimeout  The timeout in milliseconds, {@code 0} to answer immediately
+   */
+  void setLongPollTimeout(long longPollTimeout) {
+    if (longPollTimeout < 0) {
+      throw new IllegalArgumentException("longPollTimeout < 0: " + longPollTimeout);
+    }
+    this.longPollTimeout = longPollTimeout;
+  }
+
+  /**
+   * Echoes the messages posted by each connection back to it, in the response to the same request, instead of
+   * recording them for {@link #takeReceived(com.aoapps.security.Identifier, long)}.
+   */
+  void setEcho(boolean echo) {
+    this.echo = echo;
+  }
+
+  /**
+   * Sends a message to a connection, answering its long poll, or else its next messages request.
+   */
+  void send(Identifier id, String message) {
+    getConnection(id.toString()).outgoing.add(message);
+  }
+
+  /**
+   * Waits for a message received from a connection.
+   *
+   * @return  The message or {@code null} on timeout
+   */
+  String takeReceived(Identifier id, long timeout) throws InterruptedException {
+    return getConnection(id.toString()).received.poll(timeout, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gets the messages of a connection, created on first use so connects alone use no memory.
+   */
+  private Connection getConnection(String id) {
+    return connections.computeIfAbsent(id, key -> new Connection());
+  }
+
+  private boolean isRandomError() {
+    double rate = errorRate;
+    if (rate == 0) {
+      return false;
+    }
+    synchronized (random) {
+      return random.nextDouble() < rate;
+    }
+  }
+
+  /**
+   * Sends responses with <code>Transfer-Encoding: chunked</code>.
+   */
+  void setChunked(boolean chunked) {
+    this.chunked = chunked;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      requests.incrementAndGet();
+      byte[] request = readFully(exchange.getRequestBody());
+      long d = sampleLatency();
+      if (d > 0) {
+        try {
+          Thread.sleep(d);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      }
+      int s = status;
+      if (s == 200 && isRandomError()) {
+        s = 500;
+      }
+      if (s != 200) {
+        errors.incrementAndGet();
+        exchange.sendResponseHeaders(s, -1);
+        return;
+      }
+      Map<String, String> form = parseForm(request);
+      String action = form.get("action");
+      byte[] response;
+      if ("connect".equals(action)) {
+        Identifier id = new Identifier();
+        lastId = id;
+        connects.incrementAndGet();
+        response = ("<connection id=\"" + id + "\"/>").getBytes(StandardCharsets.US_ASCII);
+      } else if ("messages".equals(action)) {
+        String id = form.get("id");
+        if (id == null || id.isEmpty()) {
+          exchange.sendResponseHeaders(400, -1);
+          return;
+        }
+        Connection connection = getConnection(id);
+        try {
+          response = messages(connection, form);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          return;
+        }
+      } else {
+        response = request;
+      }
+      exchange.getResponseHeaders().set("Content-Type", "application/xml");
+      if (chunked) {
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+          // Several chunks
+          int half = response.length / 2;
+          write(out, response, 0, half);
+          out.flush();
+          write(out, response, half, response.length - half);
+        }
+      } else {
+        exchange.sendResponseHeaders(200, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+          write(out, response, 0, response.length);
+        }
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Records the messages of a request, then answers with the messages sent to the connection, holding a request
+   * that carries none as a long poll.
+   */
+  private byte[] messages(Connection connection, Map<String, String> form) throws InterruptedException {
+    String l = form.get("l");
+    int count = (l == null) ? 0 : Integer.parseInt(l);
+    BlockingQueue<String> queue = echo ? connection.outgoing : connection.received;
+    for (int i = 0; i < count; i++) {
+      queue.add(form.get("m" + i));
+    }
+    List<String> outgoing = new ArrayList<>();
+    connection.outgoing.drainTo(outgoing);
+    long timeout = longPollTimeout;
+    if (outgoing.isEmpty() && count == 0 && timeout > 0) {
+      polling.incrementAndGet();
+      String message;
+      try {
+        message = connection.outgoing.poll(timeout, TimeUnit.MILLISECONDS);
+      } finally {
+        polling.decrementAndGet();
+      }
+      if (message != null) {
+        outgoing.add(message);
+        connection.outgoing.drainTo(outgoing);
+      }
+    }
+    StringBuilder response = new StringBuilder("<messages>");
+    for (String message : outgoing) {
+      response.append("<message seq=\"").append(connection.seq.incrementAndGet()).append("\">");
+      for (int i = 0; i < message.length(); i++) {
+        char ch = message.charAt(i);
+        switch (ch) {
+          case '&':
+            response.append("&amp;");
+            break;
+          case '<':
+            response.append("&lt;");
+            break;
+          case '>':
+            response.append("&gt;");
+            break;
+          default:
+            response.append(ch);
+        }
+      }
+      response.append("</message>");
+    }
+    return response.append("</messages>").toString().getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Writes a response, paced to the bandwidth limit.
+   */
+  private void write(OutputStream out, byte[] b, int off, int len) throws IOException {
+    long limit = bandwidth;
+    if (limit == 0) {
+      out.write(b, off, len);
+      return;
+    }
+    // Paced in chunks of about 10 ms each
+    int chunk = (int) Math.max(1, Math.min(len, limit / 100));
+    long start = System.nanoTime();
+    int written = 0;
+    while (written < len) {
+      int size = Math.min(chunk, len - written);
+      out.write(b, off + written, size);
+      out.flush();
+      written += size;
+      long sleep = (start + written * 1_000_000_000L / limit - System.nanoTime()) / 1_000_000;
+      if (sleep > 0) {
+        try {
+          Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException(e);
+        }
+      }
+    }
+  }
+
+  private static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    byte[] buf = new byte[4096];
+    int count;
+    while ((count = in.read(buf)) != -1) {
+      bout.write(buf, 0, count);
+    }
+    return bout.toByteArray();
+  }
+
+  private static Map<String, String> parseForm(byte[] request) throws IOException {
+    Map<String, String> params = new HashMap<>();
+    String form = new String(request, StandardCharsets.US_ASCII);
+    if (!form.isEmpty()) {
+      for (String param : form.split("&")) {
+        int eq = param.indexOf('=');
+        String name = (eq == -1) ? param : param.substring(0, eq);
+        String value = (eq == -1) ? "" : param.substring(eq + 1);
+        params.put(
+            URLDecoder.decode(name, StandardCharsets.UTF_8.name()),
+            URLDecoder.decode(value, StandardCharsets.UTF_8.name())
+        );
+      }
+    }
+    return params;
+  }
+}
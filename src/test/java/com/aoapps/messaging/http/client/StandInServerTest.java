@@ -0,0 +1,205 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import com.aoapps.security.Identifier;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the knobs of the {@link StandInServer} itself.
+ */
+public class StandInServerTest {
+
+  private static final byte[] CONNECT_REQUEST = new FormEncoder().add("action", "connect").toByteArray();
+
+  private StandInServer server;
+  private NioTransport transport;
+
+  @Before
+  public void setUp() throws IOException {
+    server = new StandInServer();
+    transport = new NioTransport();
+  }
+
+  @After
+  public void tearDown() {
+    transport.close();
+    server.close();
+  }
+
+  private CompletableFuture<byte[]> post(byte[] request) throws IOException {
+    CompletableFuture<byte[]> future = new CompletableFuture<>();
+    transport.post(
+        Runnable::run,
+        server.getUrl(),
+        request,
+        1000,
+        0,
+        future::complete,
+        future::completeExceptionally
+    );
+    return future;
+  }
+
+  /**
+   * Waits for a response, throwing the failure of the exchange itself.
+   */
+  private static String get(CompletableFuture<byte[]> future) throws Throwable {
+    try {
+      return new String(future.get(10, TimeUnit.SECONDS), StandardCharsets.UTF_8);
+    } catch (ExecutionException e) {
+      throw e.getCause();
+    }
+  }
+
+  private Identifier connect() throws Throwable {
+    get(post(CONNECT_REQUEST));
+    return server.getLastId();
+  }
+
+  private static FormEncoder messages(Identifier id, String ... messages) {
+    FormEncoder form = new FormEncoder()
+        .add("action", "messages")
+        .add("id", id.toString())
+        .add("l", Integer.toString(messages.length));
+    for (int i = 0; i < messages.length; i++) {
+      form.add("m" + i, messages[i]);
+    }
+    return form;
+  }
+
+  @Test
+  public void testLongPollAnsweredBySend() throws Throwable {
+    Identifier id = connect();
+    CompletableFuture<byte[]> poll = post(messages(id).toByteArray());
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+    while (server.getPolling() == 0) {
+      assertTrue("Long poll not held", System.nanoTime() < deadline);
+      Thread.sleep(1);
+    }
+    assertFalse(poll.isDone());
+    server.send(id, "a<b");
+    assertEquals("<messages><message seq=\"1\">a&lt;b</message></messages>", get(poll));
+    // Messages sent between polls are answered at once
+    server.send(id, "c");
+    server.send(id, "d");
+    assertEquals(
+        "<messages><message seq=\"2\">c</message><message seq=\"3\">d</message></messages>",
+        get(post(messages(id).toByteArray()))
+    );
+  }
+
+  @Test
+  public void testLongPollTimeout() throws Throwable {
+    server.setLongPollTimeout(50);
+    Identifier id = connect();
+    assertEquals("<messages></messages>", get(post(messages(id).toByteArray())));
+    assertEquals(0, server.getPolling());
+  }
+
+  @Test
+  public void testMessagePost() throws Throwable {
+    server.setLongPollTimeout(60_000);
+    Identifier id = connect();
+    // Not held as a long poll, since it carries messages
+    assertEquals("<messages></messages>", get(post(messages(id, "hello", "w&rld").toByteArray())));
+    assertEquals("hello", server.takeReceived(id, 10_000));
+    assertEquals("w&rld", server.takeReceived(id, 10_000));
+  }
+
+  @Test
+  public void testEcho() throws Throwable {
+    server.setEcho(true);
+    Identifier id = connect();
+    assertEquals(
+        "<messages><message seq=\"1\">hello</message><message seq=\"2\">w&amp;rld</message></messages>",
+        get(post(messages(id, "hello", "w&rld").toByteArray()))
+    );
+    assertEquals(null, server.takeReceived(id, 0));
+  }
+
+  @Test
+  public void testErrorRate() throws Throwable {
+    byte[] request = "echo".getBytes(StandardCharsets.US_ASCII);
+    server.setErrorRate(1);
+    IOException e = assertThrows(IOException.class, () -> get(post(request)));
+    assertTrue(e.getMessage(), e.getMessage().contains("500"));
+    server.setErrorRate(0.5);
+    server.setSeed(1);
+    int failures = 0;
+    for (int i = 0; i < 100; i++) {
+      try {
+        assertEquals("echo", get(post(request)));
+      } catch (IOException e2) {
+        failures++;
+      }
+    }
+    assertEquals(failures + 1, server.getErrors());
+    assertTrue("failures: " + failures, failures > 25 && failures < 75);
+  }
+
+  @Test
+  public void testLatencyDistribution() {
+    server.setLatency(20, 0);
+    assertEquals(20, server.sampleLatency());
+    server.setLatency(20, 0.5);
+    server.setSeed(1);
+    long[] samples = new long[10_001];
+    for (int i = 0; i < samples.length; i++) {
+      samples[i] = server.sampleLatency();
+    }
+    Arrays.sort(samples);
+    long median = samples[samples.length / 2];
+    long p99 = samples[samples.length * 99 / 100];
+    assertTrue("median: " + median, median >= 19 && median <= 21);
+    // exp(0.5 * 2.33) = 3.2 times the median
+    assertTrue("p99: " + p99, p99 >= 55 && p99 <= 75);
+  }
+
+  @Test
+  public void testBandwidth() throws Throwable {
+    server.setBandwidth(10_000);
+    byte[] request = new byte[2000];
+    Arrays.fill(request, (byte) 'x');
+    long start = System.nanoTime();
+    assertArrayEquals(request, get(post(request)).getBytes(StandardCharsets.US_ASCII));
+    long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    // A lower bound only, since it is set by the pacing and not by the speed of the machine
+    assertTrue("elapsed: " + elapsed, elapsed >= 190);
+  }
+}
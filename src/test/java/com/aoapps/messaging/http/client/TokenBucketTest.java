@@ -0,0 +1,108 @@
+/*
+ * ao-messaging-http-client - Client for asynchronous bidirectional messaging over HTTP.
+ * Copyright (C) 2026  AO Industries, Inc.
+ *     support@aoindustries.com
+ *     7262 Bull Pen Cir
+ *     Mobile, AL 36695
+ *
+ * This file is part of ao-messaging-http-client.
+ *
+ * ao-messaging-http-client is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ao-messaging-http-client is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ao-messaging-http-client.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.aoapps.messaging.http.client;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+public class TokenBucketTest {
+
+  @Test
+  public void testArguments() {
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(-1, 1));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(Double.NaN, 1));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(Double.POSITIVE_INFINITY, 1));
+    assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+  }
+
+  @Test
+  public void testBurst() {
+    TokenBucket bucket = new TokenBucket(1, 5);
+    for (int i = 0; i < 5; i++) {
+      assertTrue(bucket.tryAcquire());
+    }
+    assertFalse(bucket.tryAcquire());
+    assertFalse(bucket.tryAcquire());
+  }
+
+  @Test
+  public void testReserve() {
+    TokenBucket bucket = new TokenBucket(10, 2);
+    assertEquals(0, bucket.reserve());
+    assertEquals(0, bucket.reserve());
+    long interval = TimeUnit.MILLISECONDS.toNanos(100);
+    // Each further permit is one interval later, less the little time taken by this test
+    long delay1 = bucket.reserve();
+    long delay2 = bucket.reserve();
+    assertTrue("delay1: " + delay1, delay1 > interval / 2 && delay1 <= interval);
+    assertTrue("delay2: " + delay2, delay2 > interval * 3 / 2 && delay2 <= 2 * interval);
+    // Reserved permits are taken, even though in the future
+    assertFalse(bucket.tryAcquire());
+  }
+
+  @Test
+  public void testFailedTryAcquireReservesNothing() {
+    TokenBucket bucket = new TokenBucket(1, 1);
+    assertTrue(bucket.tryAcquire());
+    for (int i = 0; i < 10; i++) {
+      assertFalse(bucket.tryAcquire());
+    }
+    // Still only one interval away
+    assertTrue(bucket.reserve() <= TimeUnit.SECONDS.toNanos(1));
+  }
+
+  @Test
+  public void testRefill() throws InterruptedException {
+    TokenBucket bucket = new TokenBucket(100, 1);
+    assertTrue(bucket.tryAcquire());
+    assertFalse(bucket.tryAcquire());
+    Thread.sleep(20);
+    assertTrue(bucket.tryAcquire());
+  }
+
+  @Test
+  public void testIdleDoesNotAccumulateBeyondBurst() throws InterruptedException {
+    TokenBucket bucket = new TokenBucket(100, 2);
+    Thread.sleep(50);
+    assertTrue(bucket.tryAcquire());
+    assertTrue(bucket.tryAcquire());
+    assertFalse(bucket.tryAcquire());
+  }
+
+  @Test
+  public void testIsIdle() throws InterruptedException {
+    TokenBucket bucket = new TokenBucket(100, 3);
+    assertTrue(bucket.isIdle());
+    bucket.reserve();
+    assertFalse(bucket.isIdle());
+    Thread.sleep(20);
+    assertTrue(bucket.isIdle());
+  }
+}